@@ -1,41 +1,25 @@
 package com.devmob.activityhelper.managers;
 
 import android.app.Activity;
-import android.graphics.Color;
 import android.view.View;
 import android.view.Window;
-import android.widget.FrameLayout;
 
 import androidx.activity.OnBackPressedCallback;
 import androidx.annotation.ColorInt;
 import androidx.appcompat.app.AppCompatActivity;
-import androidx.core.view.ViewCompat;
-import androidx.core.view.WindowCompat;
 import androidx.core.view.WindowInsetsCompat;
-import androidx.core.view.WindowInsetsControllerCompat;
+
+import com.devmob.activityhelper.R;
 
 public class ActivityManager {
 
     private final Activity activity;
     private final Window window;
 
-    // Default values
-    private static final int DEFAULT_STATUS_BAR_COLOR = Color.TRANSPARENT;
-    private static final int DEFAULT_NAVIGATION_BAR_COLOR = Color.BLACK;
-
-    // Optional overrides
-    private Integer statusBarColor = null;
-    private @ColorInt Integer navigationBarColor = null;
-    private Boolean isLightStatusBar = null;
-    private Boolean isLightNavigationBar = null;
-    private Boolean transparentStatusBar = null;
-    private Boolean transparentNavigationBar = null;
-    private Boolean fullscreen = null;
-    private Boolean extendBehindStatusBar = null;
-    private Boolean extendBehindNavigationBar = null;
-    private Integer softInputMode = null;
-    private Boolean fitsSystemWindows = null;
+    // Options, resolved into window attributes on apply()
+    private final ActivityStyle.Builder style = new ActivityStyle.Builder();
 
+    private Boolean autoLightStatusBar = null;
 
     private InsetsListener insetsListener;
     private BackListener backListener;
@@ -53,133 +37,164 @@ public class ActivityManager {
     // ---- Fluent setters ----
 
     public ActivityManager setStatusBarColor(int color) {
-        this.statusBarColor = color;
+        style.setStatusBarColor(color);
         return this;
     }
 
     public ActivityManager setNavigationBarColor(@ColorInt int color) {
-        this.navigationBarColor = color;
+        style.setNavigationBarColor(color);
         return this;
     }
 
     public ActivityManager setIsLightStatusBar(boolean light) {
-        this.isLightStatusBar = light;
+        style.setIsLightStatusBar(light);
         return this;
     }
 
     public ActivityManager setIsLightNavigationBar(boolean light) {
-        this.isLightNavigationBar = light;
+        style.setIsLightNavigationBar(light);
         return this;
     }
 
     public ActivityManager setTransparentStatusBar(boolean transparent) {
-        this.transparentStatusBar = transparent;
+        style.setTransparentStatusBar(transparent);
         return this;
     }
 
     public ActivityManager setTransparentNavigationBar(boolean transparent) {
-        this.transparentNavigationBar = transparent;
+        style.setTransparentNavigationBar(transparent);
         return this;
     }
 
     public ActivityManager setFullscreen(boolean fullscreen) {
-        this.fullscreen = fullscreen;
+        style.setFullscreen(fullscreen);
         return this;
     }
 
     public ActivityManager setExtendBehindStatusBar(boolean extend) {
-        this.extendBehindStatusBar = extend;
+        style.setExtendBehindStatusBar(extend);
         return this;
     }
 
     public ActivityManager setExtendBehindNavigationBar(boolean extend) {
-        this.extendBehindNavigationBar = extend;
+        style.setExtendBehindNavigationBar(extend);
         return this;
     }
 
     public ActivityManager setSoftInputMode(int mode) {
-        this.softInputMode = mode;
+        style.setSoftInputMode(mode);
         return this;
     }
 
     public ActivityManager setFitsSystemWindows(boolean fits) {
-        this.fitsSystemWindows = fits;
+        style.setFitsSystemWindows(fits);
         return this;
     }
 
-    // ---- APPLY ----
-    public void apply() {
-        if (true) return;
-        if (activity == null || window == null) return;
-
-        // Enable edge-to-edge
-        WindowCompat.setDecorFitsSystemWindows(window, false);
+    /**
+     * Switches status bar icons between light and dark from the content scrolled under
+     * the status bar, see {@link StatusBarContrast}. setIsLightStatusBar() is the initial value.
+     */
+    public ActivityManager setAutoLightStatusBar(boolean auto) {
+        this.autoLightStatusBar = auto;
+        return this;
+    }
 
-        // --- LIGHT/DARK ICONS ---
-        WindowInsetsControllerCompat insetsController =
-                WindowCompat.getInsetsController(window, window.getDecorView());
+    /**
+     * Starts from a shared style, options set on this manager override it.
+     */
+    public ActivityManager setStyle(ActivityStyle style) {
+        this.style.setBase(style);
+        return this;
+    }
 
-        if (isLightStatusBar != null) insetsController.setAppearanceLightStatusBars(isLightStatusBar);
-        if (isLightNavigationBar != null) insetsController.setAppearanceLightNavigationBars(isLightNavigationBar);
-        if (navigationBarColor != null) window.setNavigationBarColor(navigationBarColor);
+    // ---- APPLY ----
 
-        // --- EXTEND BEHIND SYSTEM BARS ---
-        View decorView = window.getDecorView();
-        int flags = decorView.getSystemUiVisibility();
+    /**
+     * Applies a prebuilt style without creating a manager, only the attributes
+     * that differ from the window's current ones are written.
+     */
+    public static void apply(Activity activity, ActivityStyle style) {
+        if (activity == null || style == null) return;
+        Window window = activity.getWindow();
+        if (window == null) return;
+
+        long start = MainThreadMonitor.begin();
+        WindowStateApplier.apply(window, appliedStateOf(window), style.state);
+        MainThreadMonitor.end(MainThreadMonitor.OP_APPLY, start);
+    }
 
-        if (extendBehindStatusBar != null && extendBehindStatusBar) {
-            flags |= View.SYSTEM_UI_FLAG_LAYOUT_STABLE | View.SYSTEM_UI_FLAG_LAYOUT_FULLSCREEN;
-        }
+    /**
+     * Attributes last applied to {@code window}, creates its decor view if needed.
+     */
+    static WindowState appliedStateOf(Window window) {
+        return getAppliedConfig(window).state;
+    }
 
-        if (extendBehindNavigationBar != null && extendBehindNavigationBar) {
-            flags |= View.SYSTEM_UI_FLAG_LAYOUT_HIDE_NAVIGATION;
-        }
+    public void apply() {
+        long start = MainThreadMonitor.begin();
+        applyNow();
+        MainThreadMonitor.end(MainThreadMonitor.OP_APPLY, start);
+    }
 
-        decorView.setSystemUiVisibility(flags);
+    private void applyNow() {
+        if (activity == null || window == null) return;
 
-        // --- FULLSCREEN ---
-        if (fullscreen != null && fullscreen) {
-            flags = decorView.getSystemUiVisibility();
-            flags |= View.SYSTEM_UI_FLAG_FULLSCREEN
-                    | View.SYSTEM_UI_FLAG_HIDE_NAVIGATION
-                    | View.SYSTEM_UI_FLAG_IMMERSIVE_STICKY;
-            decorView.setSystemUiVisibility(flags);
-        }
+        AppliedConfig applied = getAppliedConfig(window);
 
-        // --- SOFT INPUT MODE ---
-        if (softInputMode != null) window.setSoftInputMode(softInputMode);
+        // --- WINDOW ATTRIBUTES --- only the ones that changed since the last apply()
+        WindowState target = new WindowState();
+        style.resolveInto(target);
+        WindowStateApplier.apply(window, applied.state, target);
 
-        // --- FITS SYSTEM WINDOWS ---
-        if (fitsSystemWindows != null) {
-            View contentView = window.findViewById(android.R.id.content);
-            if (contentView != null) {
-                contentView.setFitsSystemWindows(fitsSystemWindows);
+        // --- CONTENT AWARE STATUS BAR ICONS ---
+        if (autoLightStatusBar != null) {
+            if (autoLightStatusBar) {
+                StatusBarContrast.attach(activity);
+            } else {
+                StatusBarContrast contrast = StatusBarContrast.get(activity);
+                if (contrast != null) contrast.detach();
             }
         }
 
         // --- INSETS LISTENER ---
-        if (insetsListener != null) {
-            final FrameLayout rootLayout = activity.findViewById(android.R.id.content);
-            ViewCompat.setOnApplyWindowInsetsListener(rootLayout, (v, insets) -> {
-                insetsListener.onApply(insets);
+        if (insetsListener != null && insetsListener != applied.insetsListener) {
+            applied.insetsListener = insetsListener;
+            final InsetsListener listener = insetsListener;
+            InsetsDispatcher.of(activity).setListener(ActivityManager.class, InsetsDispatcher.PRIORITY_DEFAULT, (v, insets) -> {
+                listener.onApply(insets);
                 return insets;
             });
         }
 
         // --- BACK BUTTON LISTENER ---
-        if (backListener != null && activity instanceof AppCompatActivity) {
+        if (backListener != null && backListener != applied.backListener
+                && activity instanceof AppCompatActivity) {
+            if (applied.backCallback != null) applied.backCallback.remove();
+
+            final BackListener listener = backListener;
+            applied.backListener = listener;
+            applied.backCallback = new OnBackPressedCallback(true) {
+                @Override
+                public void handleOnBackPressed() {
+                    listener.onBack();
+                }
+            };
             ((AppCompatActivity) activity).getOnBackPressedDispatcher().addCallback(
-                    (AppCompatActivity) activity,
-                    new OnBackPressedCallback(true) {
-                        @Override
-                        public void handleOnBackPressed() {
-                            backListener.onBack();
-                        }
-                    }
-            );
+                    (AppCompatActivity) activity, applied.backCallback);
         }
     }
 
+    private static AppliedConfig getAppliedConfig(Window window) {
+        View decorView = window.getDecorView();
+        Object tag = decorView.getTag(R.id.activity_helper_window_state);
+        if (tag instanceof AppliedConfig) return (AppliedConfig) tag;
+
+        AppliedConfig config = new AppliedConfig();
+        decorView.setTag(R.id.activity_helper_window_state, config);
+        return config;
+    }
+
     public ActivityManager setOnApplyInsetsListener(InsetsListener listener) {
         this.insetsListener = listener;
         return this;
@@ -225,6 +240,14 @@ public class ActivityManager {
                 .setTransparentNavigationBar(true);
     }
 
+    // What was last applied to a window, kept on its decor view
+    private static final class AppliedConfig {
+        final WindowState state = new WindowState();
+        InsetsListener insetsListener;
+        BackListener backListener;
+        OnBackPressedCallback backCallback;
+    }
+
     public interface InsetsListener {
         void onApply(WindowInsetsCompat insets);
     }
@@ -0,0 +1,249 @@
+package com.devmob.activityhelper.managers;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.os.Build;
+import android.util.TypedValue;
+
+import androidx.annotation.ColorInt;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+
+/**
+ * Immutable, resolved set of system bar / window options.
+ * Build it once (or use one of the presets) and share it between activities:
+ * {@code ActivityManager.apply(activity, style)} only diffs it against the window.
+ */
+public final class ActivityStyle {
+
+    // Bits of getMask() / getFlags()
+    public static final int ATTR_STATUS_BAR_COLOR = WindowState.STATUS_BAR_COLOR;
+    public static final int ATTR_NAVIGATION_BAR_COLOR = WindowState.NAVIGATION_BAR_COLOR;
+    public static final int ATTR_LIGHT_STATUS_BAR = WindowState.LIGHT_STATUS_BAR;
+    public static final int ATTR_LIGHT_NAVIGATION_BAR = WindowState.LIGHT_NAVIGATION_BAR;
+    public static final int ATTR_EDGE_TO_EDGE = WindowState.EDGE_TO_EDGE;
+    public static final int ATTR_HIDE_SYSTEM_BARS = WindowState.HIDE_SYSTEM_BARS;
+    public static final int ATTR_SOFT_INPUT_MODE = WindowState.SOFT_INPUT_MODE;
+    public static final int ATTR_FITS_SYSTEM_WINDOWS = WindowState.FITS_SYSTEM_WINDOWS;
+
+    // ---- Presets ----
+    public static final ActivityStyle EDGE_TO_EDGE = new Builder().edgeToEdge().build();
+    public static final ActivityStyle IMMERSIVE = new Builder().immersive().build();
+    public static final ActivityStyle TRANSPARENT_LIGHT = new Builder().transparentLight().build();
+    public static final ActivityStyle TRANSPARENT_DARK = new Builder().transparentDark().build();
+
+    // Sets nothing: a builder on it only sets what it is given, without the edge-to-edge default
+    private static final ActivityStyle UNSET = new ActivityStyle(new WindowState());
+
+    // Never mutated after construction
+    final WindowState state;
+
+    private ActivityStyle(WindowState state) {
+        this.state = state;
+    }
+
+    /**
+     * Attributes this style sets, see the bit constants.
+     */
+    public int getMask() {
+        return state.mask;
+    }
+
+    /**
+     * Values of the boolean attributes in {@link #getMask()}.
+     */
+    public int getFlags() {
+        return state.flags;
+    }
+
+    public boolean has(int attribute) {
+        return state.has(attribute);
+    }
+
+    @ColorInt
+    public int getStatusBarColor() {
+        return state.statusBarColor;
+    }
+
+    @ColorInt
+    public int getNavigationBarColor() {
+        return state.navigationBarColor;
+    }
+
+    public int getSoftInputMode() {
+        return state.softInputMode;
+    }
+
+    public Builder buildUpon() {
+        return new Builder().setBase(this);
+    }
+
+    /**
+     * Style matching the bar colors and icon appearance declared by the context's theme.
+     * Attributes the theme does not declare, edge-to-edge included, are left as they are.
+     */
+    public static ActivityStyle fromTheme(@NonNull Context context) {
+        return fromTheme(context.getTheme());
+    }
+
+    public static ActivityStyle fromTheme(@NonNull Context context, @StyleRes int themeResId) {
+        Resources.Theme theme = context.getResources().newTheme();
+        theme.applyStyle(themeResId, true);
+        return fromTheme(theme);
+    }
+
+    private static ActivityStyle fromTheme(Resources.Theme theme) {
+        Builder builder = new Builder().setBase(UNSET);
+        TypedValue value = new TypedValue();
+
+        if (resolveColor(theme, android.R.attr.statusBarColor, value)) {
+            builder.setStatusBarColor(value.data);
+        }
+        if (resolveColor(theme, android.R.attr.navigationBarColor, value)) {
+            builder.setNavigationBarColor(value.data);
+        }
+        if (theme.resolveAttribute(android.R.attr.windowLightStatusBar, value, true)
+                && value.type == TypedValue.TYPE_INT_BOOLEAN) {
+            builder.setIsLightStatusBar(value.data != 0);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O_MR1
+                && theme.resolveAttribute(android.R.attr.windowLightNavigationBar, value, true)
+                && value.type == TypedValue.TYPE_INT_BOOLEAN) {
+            builder.setIsLightNavigationBar(value.data != 0);
+        }
+        return builder.build();
+    }
+
+    private static boolean resolveColor(Resources.Theme theme, int attr, TypedValue value) {
+        return theme.resolveAttribute(attr, value, true)
+                && value.type >= TypedValue.TYPE_FIRST_COLOR_INT
+                && value.type <= TypedValue.TYPE_LAST_COLOR_INT;
+    }
+
+    public static final class Builder {
+
+        @Nullable private ActivityStyle base;
+        private final StyleOptions options = new StyleOptions();
+        private final WindowState state = options.state;
+
+        public Builder() {
+        }
+
+        /**
+         * Options set on this builder override the ones of {@code base}.
+         */
+        public Builder setBase(@Nullable ActivityStyle base) {
+            this.base = base;
+            return this;
+        }
+
+        // ---- Fluent setters ----
+
+        public Builder setStatusBarColor(@ColorInt int color) {
+            state.setStatusBarColor(color);
+            return this;
+        }
+
+        public Builder setNavigationBarColor(@ColorInt int color) {
+            state.setNavigationBarColor(color);
+            return this;
+        }
+
+        public Builder setIsLightStatusBar(boolean light) {
+            state.setFlag(WindowState.LIGHT_STATUS_BAR, light);
+            return this;
+        }
+
+        public Builder setIsLightNavigationBar(boolean light) {
+            state.setFlag(WindowState.LIGHT_NAVIGATION_BAR, light);
+            return this;
+        }
+
+        public Builder setTransparentStatusBar(boolean transparent) {
+            return setOption(StyleOptions.TRANSPARENT_STATUS_BAR, transparent);
+        }
+
+        public Builder setTransparentNavigationBar(boolean transparent) {
+            return setOption(StyleOptions.TRANSPARENT_NAVIGATION_BAR, transparent);
+        }
+
+        public Builder setFullscreen(boolean fullscreen) {
+            state.setFlag(WindowState.HIDE_SYSTEM_BARS, fullscreen);
+            return this;
+        }
+
+        public Builder setExtendBehindStatusBar(boolean extend) {
+            return setOption(StyleOptions.EXTEND_BEHIND_STATUS_BAR, extend);
+        }
+
+        public Builder setExtendBehindNavigationBar(boolean extend) {
+            return setOption(StyleOptions.EXTEND_BEHIND_NAVIGATION_BAR, extend);
+        }
+
+        public Builder setSoftInputMode(int mode) {
+            state.setSoftInputMode(mode);
+            return this;
+        }
+
+        public Builder setFitsSystemWindows(boolean fits) {
+            state.setFlag(WindowState.FITS_SYSTEM_WINDOWS, fits);
+            return this;
+        }
+
+        private Builder setOption(int option, boolean value) {
+            options.setOption(option, value);
+            return this;
+        }
+
+        // ---- Presets ----
+
+        /**
+         * Transparent status bar with light icons
+         */
+        public Builder transparentLight() {
+            return setTransparentStatusBar(true)
+                    .setIsLightStatusBar(true);
+        }
+
+        /**
+         * Transparent status bar with dark icons
+         */
+        public Builder transparentDark() {
+            return setTransparentStatusBar(true)
+                    .setIsLightStatusBar(false);
+        }
+
+        /**
+         * Edge-to-edge layout
+         */
+        public Builder edgeToEdge() {
+            return setTransparentStatusBar(true)
+                    .setTransparentNavigationBar(true)
+                    .setExtendBehindStatusBar(true)
+                    .setExtendBehindNavigationBar(true);
+        }
+
+        /**
+         * Immersive fullscreen
+         */
+        public Builder immersive() {
+            return setFullscreen(true)
+                    .setTransparentStatusBar(true)
+                    .setTransparentNavigationBar(true);
+        }
+
+        public ActivityStyle build() {
+            WindowState resolved = new WindowState();
+            resolveInto(resolved);
+            return new ActivityStyle(resolved);
+        }
+
+        /**
+         * Writes the resolved attributes into {@code out}, replacing its content.
+         */
+        void resolveInto(WindowState out) {
+            options.resolveInto(base != null ? base.state : null, out);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Activity;
+import android.app.Application;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+
+/**
+ * Applies an {@link ActivityStyle} to every activity of the application before
+ * its first layout, so activities don't need to call ActivityManager themselves.
+ * <p>
+ * Window attributes (bar colors, soft input mode) are written in onActivityPreCreated
+ * on API 29+, the ones that need the decor view right after onCreate, once the
+ * content view is set.
+ */
+public final class ActivityStyleRegistry implements Application.ActivityLifecycleCallbacks {
+
+    private static ActivityStyleRegistry instance;
+
+    private final Map<Class<?>, ActivityStyle> styles = new HashMap<>();
+    private final Map<Class<?>, ActivityStyle> resolved = new HashMap<>();
+    private final Map<Class<?>, Boolean> excluded = new HashMap<>();
+    private ActivityStyle defaultStyle;
+
+    // Attributes written before the decor view existed
+    private final Map<Activity, WindowState> early = new WeakHashMap<>();
+    // Styled on their first start, before API 29
+    private final Set<Activity> started = Collections.newSetFromMap(new WeakHashMap<>());
+
+    private ActivityStyleRegistry() {
+    }
+
+    // ENTRY POINT
+    public static ActivityStyleRegistry install(@NonNull Application application) {
+        if (instance == null) {
+            instance = new ActivityStyleRegistry();
+            application.registerActivityLifecycleCallbacks(instance);
+        }
+        return instance;
+    }
+
+    @Nullable
+    public static ActivityStyleRegistry getInstance() {
+        return instance;
+    }
+
+    // ---- Fluent setters ----
+
+    /**
+     * Style of every activity without a registered one, {@code null} to leave them alone.
+     */
+    public ActivityStyleRegistry setDefaultStyle(@Nullable ActivityStyle style) {
+        this.defaultStyle = style;
+        resolved.clear();
+        return this;
+    }
+
+    /**
+     * Style of {@code activityClass} and its subclasses.
+     */
+    public ActivityStyleRegistry register(@NonNull Class<? extends Activity> activityClass, @NonNull ActivityStyle style) {
+        styles.put(activityClass, style);
+        excluded.remove(activityClass);
+        resolved.clear();
+        return this;
+    }
+
+    /**
+     * {@code activityClass} and its subclasses keep their own styling, even with a default style.
+     */
+    public ActivityStyleRegistry exclude(@NonNull Class<? extends Activity> activityClass) {
+        styles.remove(activityClass);
+        excluded.put(activityClass, Boolean.TRUE);
+        resolved.clear();
+        return this;
+    }
+
+    @Nullable
+    public ActivityStyle getStyle(@NonNull Class<? extends Activity> activityClass) {
+        if (resolved.containsKey(activityClass)) return resolved.get(activityClass);
+
+        ActivityStyle style = defaultStyle;
+        for (Class<?> c = activityClass; c != null && c != Activity.class; c = c.getSuperclass()) {
+            if (excluded.containsKey(c)) {
+                style = null;
+                break;
+            }
+            ActivityStyle registered = styles.get(c);
+            if (registered != null) {
+                style = registered;
+                break;
+            }
+        }
+        resolved.put(activityClass, style);
+        return style;
+    }
+
+    // ---- Lifecycle ----
+
+    @Override
+    public void onActivityPreCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        ActivityStyle style = getStyle(activity.getClass());
+        Window window = activity.getWindow();
+        if (style == null || window == null) return;
+
+        WindowState applied = new WindowState();
+        WindowStateApplier.apply(window, applied, style.state, WindowStateApplier.WINDOW_ATTRIBUTES);
+        early.put(activity, applied);
+    }
+
+    @Override
+    public void onActivityPostCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+        applyStyle(activity);
+    }
+
+    @Override
+    public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+    }
+
+    @Override
+    public void onActivityStarted(@NonNull Activity activity) {
+        // No post-created callback before API 29, the decor is still not attached here.
+        // Only the first start: later ones must not undo what the screen changed since.
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.Q && started.add(activity)) applyStyle(activity);
+    }
+
+    @Override
+    public void onActivityResumed(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityPaused(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivityStopped(@NonNull Activity activity) {
+    }
+
+    @Override
+    public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+    }
+
+    @Override
+    public void onActivityDestroyed(@NonNull Activity activity) {
+        early.remove(activity);
+        started.remove(activity);
+    }
+
+    private void applyStyle(Activity activity) {
+        ActivityStyle style = getStyle(activity.getClass());
+        Window window = activity.getWindow();
+        if (style == null || window == null) return;
+
+        WindowState applied = ActivityManager.appliedStateOf(window);
+        WindowState written = early.remove(activity);
+        if (written != null) applied.merge(written, written.mask);
+
+        WindowStateApplier.apply(window, applied, style.state);
+    }
+}
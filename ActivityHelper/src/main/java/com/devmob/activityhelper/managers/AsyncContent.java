@@ -0,0 +1,209 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Dialog;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.AttributeSet;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.widget.FrameLayout;
+
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Dialog content inflated on a background thread while the window is configured on the
+ * main thread. The dialog is shown once the content is ready, or after a timeout with a
+ * placeholder that the content replaces when it arrives.
+ * <p>
+ * Like AndroidX's AsyncLayoutInflater the background inflater has no factory, so AppCompat
+ * does not swap widgets for their AppCompat versions: use those classes in the layout.
+ * Layouts that cannot be inflated off the main thread are inflated on it instead.
+ */
+final class AsyncContent {
+
+    interface Callback {
+        void onInflated(View content);
+    }
+
+    private static final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private static ExecutorService executor;
+
+    private final Context context;
+    private final @LayoutRes int layout;
+    // Only used to generate the root's LayoutParams, never attached
+    private final FrameLayout paramsParent;
+    private final long startTime = SystemClock.uptimeMillis();
+
+    private View content;
+    private boolean ready = false;
+    private boolean cancelled = false;
+    private long readyTime;
+
+    private Dialog target;
+    private Callback callback;
+    private boolean showWhenReady = false;
+    private boolean placeholderShown = false;
+    // The placeholder dialog was shown, the content only replaces it
+    private boolean timedOut = false;
+
+    private final Runnable timeout = this::onTimeout;
+    private @LayoutRes int placeholder = 0;
+
+    private AsyncContent(Context context, @LayoutRes int layout) {
+        this.context = context;
+        this.layout = layout;
+        this.paramsParent = new FrameLayout(context);
+    }
+
+    /**
+     * Starts inflating {@code layout} right away.
+     */
+    static AsyncContent inflate(@NonNull Context context, @LayoutRes int layout) {
+        AsyncContent content = new AsyncContent(context, layout);
+        getExecutor().execute(content::inflateInBackground);
+        return content;
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ActivityHelper-Inflater");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    // ---- Delivery ----
+
+    /**
+     * Sets the content on {@code dialog} once it is inflated and, with {@code show}, shows
+     * the dialog then. Past {@code timeoutMillis} the dialog is shown with {@code placeholder}
+     * (0 for none) and the content replaces it later.
+     */
+    void deliver(@NonNull Dialog dialog, Callback callback, boolean show, long timeoutMillis, @LayoutRes int placeholder) {
+        this.target = dialog;
+        this.callback = callback;
+        this.showWhenReady = show;
+        this.placeholder = placeholder;
+
+        if (ready) {
+            setContent();
+            if (show) showDialog();
+            return;
+        }
+        if (show) {
+            mainHandler.postDelayed(timeout, timeoutMillis);
+        } else {
+            // Shown by someone else, e.g. a DialogScheduler: have something to show meanwhile
+            setPlaceholder();
+        }
+    }
+
+    void cancel() {
+        cancelled = true;
+        mainHandler.removeCallbacks(timeout);
+        target = null;
+        callback = null;
+    }
+
+    boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Time from the request to the content being inflated, -1 while it is not.
+     */
+    long getInflateMillis() {
+        return ready ? readyTime - startTime : -1;
+    }
+
+    // ---- Internal ----
+
+    private void inflateInBackground() {
+        if (cancelled) return;
+        View view;
+        try {
+            view = new BasicInflater(context).inflate(layout, paramsParent, false);
+        } catch (RuntimeException e) {
+            // Needs the main thread (e.g. a Handler created in a constructor)
+            view = null;
+        }
+        final View inflated = view;
+        mainHandler.post(() -> onInflated(inflated));
+    }
+
+    private void onInflated(View view) {
+        if (cancelled) return;
+        content = view != null ? view : LayoutInflater.from(context).inflate(layout, paramsParent, false);
+        ready = true;
+        readyTime = SystemClock.uptimeMillis();
+        mainHandler.removeCallbacks(timeout);
+
+        if (target == null) return;
+        setContent();
+        // A dialog shown on timeout and dismissed since stays dismissed
+        if (showWhenReady && !timedOut) showDialog();
+    }
+
+    private void onTimeout() {
+        if (ready || target == null) return;
+        timedOut = true;
+        setPlaceholder();
+        showDialog();
+    }
+
+    private void setPlaceholder() {
+        if (placeholder == 0 || placeholderShown) return;
+        placeholderShown = true;
+        target.setContentView(placeholder);
+    }
+
+    private void setContent() {
+        target.setContentView(content, content.getLayoutParams());
+        if (callback != null) callback.onInflated(content);
+    }
+
+    private void showDialog() {
+        try {
+            target.show();
+        } catch (RuntimeException e) {
+            // Window token gone, e.g. activity finishing
+        }
+    }
+
+    // Framework widgets without the activity's factories, safe to use off the main thread
+    private static final class BasicInflater extends LayoutInflater {
+
+        private static final String[] PREFIXES = {"android.widget.", "android.webkit.", "android.app."};
+
+        BasicInflater(Context context) {
+            super(context);
+        }
+
+        @Override
+        public LayoutInflater cloneInContext(Context newContext) {
+            return new BasicInflater(newContext);
+        }
+
+        @Override
+        protected View onCreateView(String name, AttributeSet attrs) throws ClassNotFoundException {
+            for (String prefix : PREFIXES) {
+                try {
+                    View view = createView(name, prefix, attrs);
+                    if (view != null) return view;
+                } catch (ClassNotFoundException ignored) {
+                    // Try the next package
+                }
+            }
+            return super.onCreateView(name, attrs);
+        }
+    }
+}
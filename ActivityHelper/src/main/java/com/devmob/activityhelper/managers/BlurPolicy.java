@@ -0,0 +1,275 @@
+package com.devmob.activityhelper.managers;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.PowerManager;
+import android.os.SystemClock;
+import android.view.FrameMetrics;
+import android.view.Window;
+import android.view.WindowManager;
+
+import androidx.annotation.NonNull;
+import androidx.core.content.ContextCompat;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Decides whether dialogs may use cross-window blur or should fall back to dim only.
+ * <p>
+ * Blur is dropped when the device or the user disabled it, in battery saver, or when
+ * recent frames of blurred windows show jank. The decision and its reason are exposed,
+ * and windows configured through {@link #applyTo} are updated when it changes.
+ */
+public final class BlurPolicy {
+
+    public static final int MODE_BLUR = 0;
+    public static final int MODE_DIM_ONLY = 1;
+
+    public static final int REASON_ENABLED = 0;
+    public static final int REASON_UNSUPPORTED = 1;
+    public static final int REASON_DISABLED_BY_APP = 2;
+    public static final int REASON_CROSS_WINDOW_BLUR_DISABLED = 3;
+    public static final int REASON_POWER_SAVE = 4;
+    public static final int REASON_JANK = 5;
+
+    private static final int FRAME_WINDOW = 60;
+    private static final long DEFAULT_JANK_FRAME_NANOS = 25_000_000L;
+    private static final float DEFAULT_JANK_RATIO = 0.2f;
+    private static final long DEFAULT_JANK_COOLDOWN = 30_000L;
+
+    private static BlurPolicy instance;
+
+    private final Context context;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final Map<Window, Integer> boundWindows = new WeakHashMap<>();
+    private final Map<Window, Boolean> watchedWindows = new WeakHashMap<>();
+    private final List<Listener> listeners = new ArrayList<>();
+
+    private boolean enabled = true;
+    private boolean crossWindowBlurEnabled = true;
+    private boolean powerSave = false;
+    private boolean blurListenerRegistered = false;
+
+    // Jank tracking, written from the frame metrics thread
+    private final long[] frameDurations = new long[FRAME_WINDOW];
+    private int frameIndex = 0;
+    private int frameCount = 0;
+    private int jankCount = 0;
+    private long jankFrameNanos = DEFAULT_JANK_FRAME_NANOS;
+    private float jankRatio = DEFAULT_JANK_RATIO;
+    private long jankCooldown = DEFAULT_JANK_COOLDOWN;
+    private volatile long jankUntil = 0;
+    private HandlerThread metricsThread;
+    private Handler metricsHandler;
+
+    private int mode;
+    private int reason;
+
+    private BlurPolicy(Context context) {
+        this.context = context.getApplicationContext();
+
+        PowerManager powerManager = (PowerManager) this.context.getSystemService(Context.POWER_SERVICE);
+        powerSave = powerManager != null && powerManager.isPowerSaveMode();
+        ContextCompat.registerReceiver(this.context, new BroadcastReceiver() {
+            @Override
+            public void onReceive(Context c, Intent intent) {
+                powerSave = powerManager != null && powerManager.isPowerSaveMode();
+                evaluate();
+            }
+        }, new IntentFilter(PowerManager.ACTION_POWER_SAVE_MODE_CHANGED), ContextCompat.RECEIVER_NOT_EXPORTED);
+
+        evaluate();
+    }
+
+    // ENTRY POINT
+    public static BlurPolicy getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new BlurPolicy(context);
+        }
+        return instance;
+    }
+
+    // ---- Fluent setters ----
+
+    /**
+     * App-level switch, {@code false} keeps every dialog on dim only.
+     */
+    public BlurPolicy setEnabled(boolean enabled) {
+        this.enabled = enabled;
+        evaluate();
+        return this;
+    }
+
+    /**
+     * A frame slower than {@code frameNanos} counts as jank; blur is dropped for
+     * {@code cooldownMillis} once more than {@code ratio} of the recent frames are janky.
+     */
+    public synchronized BlurPolicy setJankThreshold(long frameNanos, float ratio, long cooldownMillis) {
+        this.jankFrameNanos = frameNanos;
+        this.jankRatio = ratio;
+        this.jankCooldown = cooldownMillis;
+        return this;
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ---- Decision ----
+
+    public boolean isBlurAllowed() {
+        return mode == MODE_BLUR;
+    }
+
+    public int getMode() {
+        return mode;
+    }
+
+    public int getReason() {
+        return reason;
+    }
+
+    public String describe() {
+        return (mode == MODE_BLUR ? "blur" : "dim only") + " (" + reasonToString(reason) + ")";
+    }
+
+    public static String reasonToString(int reason) {
+        switch (reason) {
+            case REASON_ENABLED: return "enabled";
+            case REASON_UNSUPPORTED: return "unsupported below API 31";
+            case REASON_DISABLED_BY_APP: return "disabled by app";
+            case REASON_CROSS_WINDOW_BLUR_DISABLED: return "cross-window blur disabled";
+            case REASON_POWER_SAVE: return "power save mode";
+            case REASON_JANK: return "recent jank";
+            default: return "unknown";
+        }
+    }
+
+    private void evaluate() {
+        int newReason;
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) {
+            newReason = REASON_UNSUPPORTED;
+        } else if (!enabled) {
+            newReason = REASON_DISABLED_BY_APP;
+        } else if (!crossWindowBlurEnabled) {
+            newReason = REASON_CROSS_WINDOW_BLUR_DISABLED;
+        } else if (powerSave) {
+            newReason = REASON_POWER_SAVE;
+        } else if (SystemClock.uptimeMillis() < jankUntil) {
+            newReason = REASON_JANK;
+        } else {
+            newReason = REASON_ENABLED;
+        }
+        int newMode = newReason == REASON_ENABLED ? MODE_BLUR : MODE_DIM_ONLY;
+
+        if (newReason == reason && newMode == mode) return;
+        boolean modeChanged = newMode != mode;
+        mode = newMode;
+        reason = newReason;
+
+        if (modeChanged) {
+            for (Map.Entry<Window, Integer> entry : boundWindows.entrySet()) {
+                Window window = entry.getKey();
+                if (window == null) continue;
+                WindowManager.LayoutParams params = WindowParams.edit(window);
+                writeBlur(params, entry.getValue());
+                WindowParams.commit(window, params);
+            }
+        }
+        for (Listener listener : new ArrayList<>(listeners)) {
+            listener.onBlurPolicyChanged(mode, reason);
+        }
+    }
+
+    // ---- Windows ----
+
+    /**
+     * Writes blur (or its absence) into {@code params} for {@code window} and keeps the
+     * window updated while it is alive.
+     */
+    void applyTo(Window window, WindowManager.LayoutParams params, int radius) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
+            registerBlurListener(window);
+            watchFrames(window);
+        }
+        boundWindows.put(window, radius);
+        writeBlur(params, radius);
+    }
+
+    private void writeBlur(WindowManager.LayoutParams params, int radius) {
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.S) return;
+        if (mode == MODE_BLUR) {
+            params.flags |= WindowManager.LayoutParams.FLAG_BLUR_BEHIND;
+            params.setBlurBehindRadius(radius);
+        } else {
+            params.flags &= ~WindowManager.LayoutParams.FLAG_BLUR_BEHIND;
+            params.setBlurBehindRadius(0);
+        }
+    }
+
+    private void registerBlurListener(Window window) {
+        if (blurListenerRegistered || Build.VERSION.SDK_INT < Build.VERSION_CODES.S) return;
+        blurListenerRegistered = true;
+
+        // Needs a visual context's WindowManager, the listener itself is global
+        WindowManager windowManager = window.getWindowManager();
+        crossWindowBlurEnabled = windowManager.isCrossWindowBlurEnabled();
+        windowManager.addCrossWindowBlurEnabledListener(mainHandler::post, blurEnabled -> {
+            crossWindowBlurEnabled = blurEnabled;
+            evaluate();
+        });
+        evaluate();
+    }
+
+    private void watchFrames(Window window) {
+        if (watchedWindows.containsKey(window)) return;
+        watchedWindows.put(window, Boolean.TRUE);
+
+        if (metricsHandler == null) {
+            metricsThread = new HandlerThread("ActivityHelper-BlurMetrics");
+            metricsThread.start();
+            metricsHandler = new Handler(metricsThread.getLooper());
+        }
+        try {
+            window.addOnFrameMetricsAvailableListener((w, frameMetrics, dropCount) ->
+                    recordFrame(frameMetrics.getMetric(FrameMetrics.TOTAL_DURATION)), metricsHandler);
+        } catch (IllegalStateException ignored) {
+            // Not hardware accelerated, nothing to measure
+        }
+    }
+
+    private synchronized void recordFrame(long durationNanos) {
+        if (frameCount == FRAME_WINDOW && frameDurations[frameIndex] > jankFrameNanos) jankCount--;
+        frameDurations[frameIndex] = durationNanos;
+        if (durationNanos > jankFrameNanos) jankCount++;
+        frameIndex = (frameIndex + 1) % FRAME_WINDOW;
+        if (frameCount < FRAME_WINDOW) frameCount++;
+
+        if (frameCount == FRAME_WINDOW && jankCount > FRAME_WINDOW * jankRatio) {
+            jankUntil = SystemClock.uptimeMillis() + jankCooldown;
+            // Start over so the cooldown is not extended by the frames that caused it
+            frameCount = 0;
+            jankCount = 0;
+            frameIndex = 0;
+            mainHandler.post(this::evaluate);
+            mainHandler.postDelayed(this::evaluate, jankCooldown);
+        }
+    }
+
+    public interface Listener {
+        void onBlurPolicyChanged(int mode, int reason);
+    }
+}
@@ -3,7 +3,6 @@ package com.devmob.activityhelper.managers;
 import android.content.res.ColorStateList;
 import android.graphics.Rect;
 import android.graphics.drawable.Drawable;
-import android.os.Build;
 import android.view.Gravity;
 import android.view.View;
 import android.view.ViewGroup;
@@ -12,25 +11,34 @@ import android.view.Window;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
 
+import androidx.activity.ComponentActivity;
 import androidx.annotation.ColorInt;
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
 import com.google.android.material.bottomsheet.BottomSheetBehavior;
 import com.google.android.material.bottomsheet.BottomSheetDialog;
 import com.google.android.material.shape.MaterialShapeDrawable;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class BottomSheetManager {
 
     private final BottomSheetDialog dialog;
     private InsetsListener insetsListener;
     private KeyboardVisibilityListener keyboardListener;
+    private final List<StateListener> stateListeners = new ArrayList<>();
+    private final List<SlideListener> slideListeners = new ArrayList<>();
 
     // Defaults
     private static final float DEFAULT_DIM = 0.3f;
     private static final int DEFAULT_GRAVITY = Gravity.BOTTOM;
     private static final int DEFAULT_BLUR_RADIUS = 20;
+    private static final long DEFAULT_CONTENT_TIMEOUT = 250;
+    private static final long KEYBOARD_LISTENER_DEADLINE = 200;
     // Optional overrides
     private Boolean cancelable;
     private Boolean draggable;
@@ -38,13 +46,23 @@ public class BottomSheetManager {
     private Boolean skipCollapsed;
     private Integer peekHeight;
     private Integer maxHeight;
+    private Float maxHeightFraction;
+    private Float peekHeightFraction;
+    private boolean fitContent = false;
     private Integer state;
     private Float dimAmount;
+    private Integer blurRadius;
     private Integer softInputMode;
 
 
     private @ColorInt Integer navigationBarColor = null;
 
+    // Async content
+    private AsyncContent content = null;
+    private ContentListener contentListener = null;
+    private long contentTimeout = DEFAULT_CONTENT_TIMEOUT;
+    private @LayoutRes int placeholder = 0;
+    private boolean sheetApplied = false;
 
     private BottomSheetManager(@Nullable BottomSheetDialog dialog) {
         this.dialog = dialog;
@@ -55,6 +73,19 @@ public class BottomSheetManager {
         return new BottomSheetManager(dialog);
     }
 
+    /**
+     * Manager for a pre-warmed dialog of the activity's {@link BottomSheetPool}.
+     * The dialog returns to the pool when dismissed.
+     */
+    public static BottomSheetManager fromPool(@NonNull ComponentActivity activity) {
+        return new BottomSheetManager(BottomSheetPool.of(activity).acquire());
+    }
+
+    @Nullable
+    public BottomSheetDialog getDialog() {
+        return dialog;
+    }
+
     // ---- Fluent setters ----
 
     public BottomSheetManager setCancelable(boolean value) {
@@ -85,6 +116,32 @@ public class BottomSheetManager {
         return this;
     }
 
+    /**
+     * Max height as a fraction of the height left once system bars and the keyboard are
+     * removed, followed as they change. Takes precedence over {@link #setMaxHeight}.
+     */
+    public BottomSheetManager setDynamicMaxHeight(float fraction) {
+        this.maxHeightFraction = fraction;
+        return this;
+    }
+
+    /**
+     * Peek height as a fraction of the available height, see {@link #setDynamicMaxHeight}.
+     */
+    public BottomSheetManager setDynamicPeekHeight(float fraction) {
+        this.peekHeightFraction = fraction;
+        return this;
+    }
+
+    /**
+     * With a dynamic max height, wrap the content up to that height instead of always
+     * taking all of it.
+     */
+    public BottomSheetManager setFitContent(boolean value) {
+        this.fitContent = value;
+        return this;
+    }
+
     public BottomSheetManager setState(int state) {
         this.state = state;
         return this;
@@ -95,6 +152,11 @@ public class BottomSheetManager {
         return this;
     }
 
+    public BottomSheetManager setBlurRadius(int radius) {
+        this.blurRadius = radius;
+        return this;
+    }
+
     public BottomSheetManager setSoftInputMode(int mode) {
         this.softInputMode = mode;
         return this;
@@ -112,36 +174,96 @@ public class BottomSheetManager {
         return this;
     }
 
+    /**
+     * Starts inflating {@code layout} off the main thread now; {@link #show()} shows the
+     * sheet once it is set as the content. {@code listener} binds the inflated view.
+     */
+    public BottomSheetManager setContentAsync(@LayoutRes int layout, @Nullable ContentListener listener) {
+        if (dialog == null) return this;
+        if (content != null) content.cancel();
+        this.content = AsyncContent.inflate(dialog.getContext(), layout);
+        this.contentListener = listener;
+        return this;
+    }
+
+    /**
+     * How long {@link #show()} waits for async content before showing {@code placeholder}
+     * (0 for an empty sheet).
+     */
+    public BottomSheetManager setContentTimeout(long millis, @LayoutRes int placeholder) {
+        this.contentTimeout = millis;
+        this.placeholder = placeholder;
+        return this;
+    }
+
+    /**
+     * Sheet state changes, at most one per frame: the last state reached during the frame.
+     */
+    public BottomSheetManager addStateListener(StateListener listener) {
+        this.stateListeners.add(listener);
+        return this;
+    }
+
+    /**
+     * Slide offset, at most one per frame: the last offset reached during the frame.
+     */
+    public BottomSheetManager addSlideListener(SlideListener listener) {
+        this.slideListeners.add(listener);
+        return this;
+    }
+
     // ---- APPLY ----
     public void apply() {
+        long start = MainThreadMonitor.begin();
+        applyNow();
+        MainThreadMonitor.end(MainThreadMonitor.OP_APPLY, start);
+    }
+
+    private void applyNow() {
         if (dialog == null) return;
         Window window = dialog.getWindow();
         if (window == null) return;
 
-        // Window defaults
-        window.setGravity(DEFAULT_GRAVITY);
-        window.setDimAmount(DEFAULT_DIM);
+        // Window defaults + overrides, pushed in one setAttributes() call
+        WindowManager.LayoutParams params = WindowParams.edit(window);
+        params.gravity = DEFAULT_GRAVITY;
+        params.dimAmount = dimAmount != null ? dimAmount : DEFAULT_DIM;
 
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            window.addFlags(WindowManager.LayoutParams.FLAG_BLUR_BEHIND);
-            window.getAttributes().setBlurBehindRadius(DEFAULT_BLUR_RADIUS);
-        }
+        // Blur only when the policy allows it, dim only otherwise
+        BlurPolicy.getInstance(dialog.getContext())
+                .applyTo(window, params, blurRadius != null ? blurRadius : DEFAULT_BLUR_RADIUS);
 
 //        window.setNavigationBarColor(ColorManager.getDynamicColor(dialog.getContext(), com.google.android.material.R.attr.colorPrimary));
 
+        if (softInputMode != null) params.softInputMode = softInputMode;
+        WindowParams.commit(window, params);
 
-        if (dimAmount != null) window.setDimAmount(dimAmount);
-        if (softInputMode != null) window.setSoftInputMode(softInputMode);
         if (cancelable != null) dialog.setCancelable(cancelable);
 
-        dialog.setOnShowListener(d -> {
-            View bottomSheet = dialog.findViewById(com.google.android.material.R.id.design_bottom_sheet);
-            if (bottomSheet == null) return;
+        dialog.setOnShowListener(d -> applyToSheet());
+    }
+
+    /**
+     * Applies the sheet (behavior, insets, keyboard, height) part of the configuration,
+     * needs Material's container to exist.
+     */
+    void applyToSheet() {
+        long start = MainThreadMonitor.begin();
+        applyToSheetNow();
+        MainThreadMonitor.end(MainThreadMonitor.OP_APPLY, start);
+    }
 
-            // --- INSETS LISTENER ---
-            if (insetsListener != null) {
-                ViewCompat.setOnApplyWindowInsetsListener(bottomSheet, (v, insets) -> {
-                    insetsListener.onApply(insets);
+    private void applyToSheetNow() {
+        if (dialog == null) return;
+        SheetHolder holder = SheetHolder.of(dialog);
+        if (holder == null) return;
+        View bottomSheet = holder.sheet;
+        sheetApplied = true;
+
+        // --- INSETS LISTENER ---
+        if (insetsListener != null) {
+            InsetsDispatcher.of(bottomSheet).setListener(BottomSheetManager.class, InsetsDispatcher.PRIORITY_DEFAULT, (v, insets) -> {
+                insetsListener.onApply(insets);
 //                    Insets systemBars = insets.getInsets(WindowInsetsCompat.Type.systemBars());
 //                    v.setPadding(
 //                            v.getPaddingLeft(),
@@ -150,48 +272,111 @@ public class BottomSheetManager {
 //                            systemBars.bottom // padding intern
 //                    );
 
-                    return insets;
-                });
-            }
-            if (keyboardListener != null) {
-                if (dialog.getOwnerActivity() != null) {
-                    final FrameLayout rootLayout = dialog.getOwnerActivity().findViewById(android.R.id.content);
-                    rootLayout.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
-                        boolean wasOpened = false;
+                return insets;
+            });
+        }
+        if (keyboardListener != null) {
+            if (dialog.getOwnerActivity() != null) {
+                RetainedObjectWatcher.watch(dialog.getOwnerActivity(), "BottomSheetManager.setKeyboardListener");
+                final FrameLayout rootLayout = dialog.getOwnerActivity().findViewById(android.R.id.content);
+                final ViewTreeObserver.OnPreDrawListener preDrawListener = new ViewTreeObserver.OnPreDrawListener() {
+                    boolean wasOpened = false;
+
+                    @Override
+                    public boolean onPreDraw() {
+                        long start = MainThreadMonitor.begin();
+                        Rect rect = new Rect();
+                        rootLayout.getWindowVisibleDisplayFrame(rect);
+                        int screenHeight = rootLayout.getHeight();
+                        int keypadHeight = screenHeight - rect.bottom;
+
+                        boolean isKeyboardOpen = keypadHeight > screenHeight * 0.15;
+                        if (isKeyboardOpen != wasOpened) {
+                            wasOpened = isKeyboardOpen;
+                            keyboardListener.onKeyboardVisibilityChanged(isKeyboardOpen);
+                        }
+                        MainThreadMonitor.end(MainThreadMonitor.OP_KEYBOARD, start);
+                        return true;
+                    }
+                };
+                final View decorView = dialog.getWindow().getDecorView();
+                IdleScheduler.getInstance().schedule(dialog, () -> {
+                    // Dismissed before the listener was added
+                    if (!dialog.isShowing()) return;
+                    rootLayout.getViewTreeObserver().addOnPreDrawListener(preDrawListener);
+                    decorView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+                        @Override
+                        public void onViewAttachedToWindow(@NonNull View v) {
+                        }
 
                         @Override
-                        public boolean onPreDraw() {
-                            Rect rect = new Rect();
-                            rootLayout.getWindowVisibleDisplayFrame(rect);
-                            int screenHeight = rootLayout.getHeight();
-                            int keypadHeight = screenHeight - rect.bottom;
-
-                            boolean isKeyboardOpen = keypadHeight > screenHeight * 0.15;
-                            if (isKeyboardOpen != wasOpened) {
-                                wasOpened = isKeyboardOpen;
-                                keyboardListener.onKeyboardVisibilityChanged(isKeyboardOpen);
-                            }
-                            return true;
+                        public void onViewDetachedFromWindow(@NonNull View v) {
+                            // Dismissed: the next show of a pooled dialog adds its own listener
+                            v.removeOnAttachStateChangeListener(this);
+                            rootLayout.getViewTreeObserver().removeOnPreDrawListener(preDrawListener);
                         }
                     });
-                }
+                }, 0, KEYBOARD_LISTENER_DEADLINE);
             }
-            if (navigationBarColor != null) applyNavigationBarColor(navigationBarColor);
-
-            BottomSheetBehavior<View> behavior = BottomSheetBehavior.from(bottomSheet);
-
-            if (peekHeight != null) behavior.setPeekHeight(peekHeight);
-            if (skipCollapsed != null) behavior.setSkipCollapsed(skipCollapsed);
-            if (draggable != null) behavior.setDraggable(draggable);
-            if (hideable != null) behavior.setHideable(hideable);
-            if (state != null) behavior.setState(state);
-
-            if (maxHeight != null) {
-                ViewGroup.LayoutParams params = bottomSheet.getLayoutParams();
+        }
+        if (navigationBarColor != null) applyNavigationBarColor(holder, navigationBarColor);
+
+        BottomSheetBehavior<View> behavior = holder.behavior;
+
+        for (StateListener listener : stateListeners) holder.addStateListener(listener);
+        for (SlideListener listener : slideListeners) holder.addSlideListener(listener);
+
+        // Only what differs from the live values, pooled dialogs keep their configuration
+        if (peekHeight != null && peekHeightFraction == null && behavior.getPeekHeight() != peekHeight) behavior.setPeekHeight(peekHeight);
+        if (skipCollapsed != null && behavior.getSkipCollapsed() != skipCollapsed) behavior.setSkipCollapsed(skipCollapsed);
+        if (draggable != null && behavior.isDraggable() != draggable) behavior.setDraggable(draggable);
+        if (hideable != null && behavior.isHideable() != hideable) behavior.setHideable(hideable);
+        if (state != null && behavior.getState() != state) behavior.setState(state);
+
+        if (maxHeightFraction != null || peekHeightFraction != null) {
+            holder.getSizer().configure(
+                    maxHeightFraction != null ? maxHeightFraction : -1,
+                    peekHeightFraction != null ? peekHeightFraction : -1,
+                    fitContent);
+        } else if (maxHeight != null) {
+            ViewGroup.LayoutParams params = bottomSheet.getLayoutParams();
+            if (params.height != maxHeight) {
                 params.height = maxHeight;
                 bottomSheet.setLayoutParams(params);
             }
-        });
+        }
+    }
+
+    /**
+     * Applies the configuration and shows the dialog.
+     */
+    public void show() {
+        if (dialog == null) return;
+        apply();
+        if (content != null) {
+            content.deliver(dialog, this::onContentReady, true, contentTimeout, placeholder);
+        } else {
+            dialog.show();
+        }
+    }
+
+    /**
+     * Applies the configuration and queues the dialog on the activity's {@link DialogScheduler}
+     * instead of showing it right away.
+     *
+     * @return false when a dialog with the same key is already queued or showing
+     */
+    public boolean schedule(@NonNull ComponentActivity activity, @NonNull String key, int priority) {
+        if (dialog == null) return false;
+        apply();
+        if (content != null) content.deliver(dialog, this::onContentReady, false, contentTimeout, placeholder);
+        return DialogScheduler.of(activity).enqueue(key, priority, dialog);
+    }
+
+    private void onContentReady(View view) {
+        // Shown before Material's container existed, the sheet part could not be applied then
+        if (!sheetApplied && dialog.isShowing()) applyToSheet();
+        if (contentListener != null) contentListener.onContentReady(view);
     }
 
     // region Apply
@@ -199,8 +384,13 @@ public class BottomSheetManager {
     public void applyNavigationBarColor(@ColorInt int color) {
         if (dialog == null) return;
 
-        View bottomSheet = dialog.findViewById(com.google.android.material.R.id.design_bottom_sheet);
-        if (bottomSheet == null) return;
+        SheetHolder holder = SheetHolder.of(dialog);
+        if (holder == null) return;
+        applyNavigationBarColor(holder, color);
+    }
+
+    private void applyNavigationBarColor(SheetHolder holder, @ColorInt int color) {
+        View bottomSheet = holder.sheet;
 
         Drawable background = bottomSheet.getBackground();
         if (background instanceof MaterialShapeDrawable) {
@@ -218,5 +408,14 @@ public class BottomSheetManager {
     public interface KeyboardVisibilityListener {
         void onKeyboardVisibilityChanged(boolean isOpen);
     }
+    public interface StateListener {
+        void onStateChanged(@BottomSheetBehavior.State int state);
+    }
+    public interface SlideListener {
+        void onSlide(float slideOffset);
+    }
+    public interface ContentListener {
+        void onContentReady(View content);
+    }
 
 }
@@ -0,0 +1,369 @@
+package com.devmob.activityhelper.managers;
+
+import android.content.res.ColorStateList;
+import android.graphics.drawable.Drawable;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.view.WindowManager;
+
+import androidx.activity.ComponentActivity;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.StyleRes;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.google.android.material.bottomsheet.BottomSheetBehavior;
+import com.google.android.material.bottomsheet.BottomSheetDialog;
+import com.google.android.material.shape.MaterialShapeDrawable;
+
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Activity-scoped pool of pre-created, pre-configured {@link BottomSheetDialog}s.
+ * <p>
+ * Dialogs are created while the main thread is idle, with Material's container already
+ * inflated and the {@link #setConfigurator configuration} applied. Dismissed dialogs
+ * are reset to that configuration and reused. The pool empties itself on memory
+ * pressure and when the activity is destroyed.
+ */
+public final class BottomSheetPool implements DefaultLifecycleObserver, TrimCoordinator.Trimmable {
+
+    private static final int DEFAULT_MAX_SIZE = 2;
+
+    private static final Map<ComponentActivity, BottomSheetPool> pools = new HashMap<>();
+
+    private final ComponentActivity activity;
+    private final ArrayDeque<Entry> free = new ArrayDeque<>();
+    private final Map<BottomSheetDialog, Entry> inUse = new IdentityHashMap<>();
+
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private @StyleRes int theme = 0;
+    private Configurator configurator;
+    private int prewarmCount = 0;
+    private boolean prewarmScheduled = false;
+    private boolean destroyed = false;
+
+    // Stats
+    private int hitCount = 0;
+    private int missCount = 0;
+    private int evictionCount = 0;
+
+    private final MessageQueue.IdleHandler prewarmHandler = () -> {
+        if (!destroyed && free.size() < targetSize()) {
+            free.add(create());
+        }
+        prewarmScheduled = !destroyed && free.size() < targetSize();
+        return prewarmScheduled;
+    };
+
+    private BottomSheetPool(ComponentActivity activity) {
+        this.activity = activity;
+        activity.getLifecycle().addObserver(this);
+        RetainedObjectWatcher.watch(activity, "BottomSheetPool");
+        TrimCoordinator.getInstance(activity).register("BottomSheetPool", TrimCoordinator.STAGE_CACHES, this);
+    }
+
+    // ENTRY POINT
+    public static BottomSheetPool of(@NonNull ComponentActivity activity) {
+        BottomSheetPool pool = pools.get(activity);
+        if (pool == null) {
+            pool = new BottomSheetPool(activity);
+            pools.put(activity, pool);
+        }
+        return pool;
+    }
+
+    // ---- Fluent setters ----
+
+    public BottomSheetPool setMaxSize(int maxSize) {
+        this.maxSize = maxSize;
+        while (free.size() > maxSize) {
+            discard(free.pollLast());
+        }
+        return this;
+    }
+
+    /**
+     * Theme of the dialogs created from now on, 0 for the default bottom sheet theme.
+     */
+    public BottomSheetPool setTheme(@StyleRes int theme) {
+        if (this.theme != theme) {
+            this.theme = theme;
+            clear();
+        }
+        return this;
+    }
+
+    /**
+     * Configuration applied to every pooled dialog once, when it is created.
+     * Managers taking a dialog from the pool then only apply what differs from it.
+     */
+    public BottomSheetPool setConfigurator(Configurator configurator) {
+        this.configurator = configurator;
+        clear();
+        return this;
+    }
+
+    // ---- Pool ----
+
+    /**
+     * Creates up to {@code count} dialogs, one per main thread idle pass.
+     */
+    public void prewarm(int count) {
+        prewarmCount = count;
+        schedulePrewarm();
+    }
+
+    /**
+     * A pooled dialog if one is available, a new one otherwise. It is released back
+     * to the pool when dismissed, after its own OnDismissListener ran.
+     */
+    @NonNull
+    public BottomSheetDialog acquire() {
+        Entry entry = free.pollFirst();
+        if (entry != null) {
+            hitCount++;
+        } else {
+            missCount++;
+            entry = create();
+        }
+
+        BottomSheetDialog dialog = entry.dialog;
+        inUse.put(dialog, entry);
+
+        schedulePrewarm();
+        return dialog;
+    }
+
+    public void release(@NonNull BottomSheetDialog dialog) {
+        Entry entry = inUse.remove(dialog);
+        if (entry == null) return;
+
+        if (destroyed || free.size() >= maxSize) {
+            discard(entry);
+            return;
+        }
+        entry.reset();
+        free.addFirst(entry);
+    }
+
+    /**
+     * Drops every idle dialog, dialogs in use are left alone.
+     */
+    public void clear() {
+        while (!free.isEmpty()) {
+            discard(free.pollFirst());
+        }
+    }
+
+    public int size() {
+        return free.size();
+    }
+
+    public int getHitCount() {
+        return hitCount;
+    }
+
+    public int getMissCount() {
+        return missCount;
+    }
+
+    public int getEvictionCount() {
+        return evictionCount;
+    }
+
+    private int targetSize() {
+        return Math.min(prewarmCount, maxSize);
+    }
+
+    private void schedulePrewarm() {
+        if (prewarmScheduled || destroyed || free.size() >= targetSize()) return;
+        prewarmScheduled = true;
+        Looper.myQueue().addIdleHandler(prewarmHandler);
+    }
+
+    private Entry create() {
+        PooledDialog dialog = new PooledDialog(activity, theme);
+        dialog.setOwnerActivity(activity);
+        RetainedObjectWatcher.watch(dialog, "BottomSheetPool");
+        dialog.create();
+        // Inflates Material's container and behavior
+        dialog.getBehavior();
+
+        if (configurator != null) {
+            BottomSheetManager manager = BottomSheetManager.with(dialog);
+            configurator.configure(manager);
+            manager.apply();
+            manager.applyToSheet();
+        }
+        return new Entry(dialog);
+    }
+
+    private void discard(Entry entry) {
+        if (entry == null) return;
+        evictionCount++;
+        if (entry.dialog.isShowing()) entry.dialog.dismiss();
+        RetainedObjectWatcher.release(entry.dialog, "BottomSheetPool");
+    }
+
+    // ---- Lifecycle / memory ----
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        destroyed = true;
+        Looper.myQueue().removeIdleHandler(prewarmHandler);
+        prewarmScheduled = false;
+        clear();
+        inUse.clear();
+        TrimCoordinator.getInstance(activity).unregister(this);
+        pools.remove(activity);
+        RetainedObjectWatcher.release(activity, "BottomSheetPool");
+    }
+
+    @Override
+    public void onTrim(int level, @NonNull TrimCoordinator.Release release) {
+        Looper.myQueue().removeIdleHandler(prewarmHandler);
+        prewarmScheduled = false;
+        prewarmCount = 0;
+        release.addObjects(free.size());
+        clear();
+    }
+
+    public interface Configurator {
+        void configure(BottomSheetManager manager);
+    }
+
+    // Keeps the OnDismissListener slot for the caller: returns to the pool after calling it.
+    // Also remembers the cancel settings, which Dialog has no getters for.
+    private final class PooledDialog extends BottomSheetDialog {
+        private OnDismissListener dismissListener = null;
+        boolean cancelable = true;
+        boolean canceledOnTouchOutside = true;
+
+        PooledDialog(ComponentActivity activity, @StyleRes int theme) {
+            super(activity, theme);
+            super.setOnDismissListener(d -> {
+                if (dismissListener != null) dismissListener.onDismiss(d);
+                release(this);
+            });
+        }
+
+        @Override
+        public void setOnDismissListener(@Nullable OnDismissListener listener) {
+            this.dismissListener = listener;
+        }
+
+        @Override
+        public void setCancelable(boolean cancelable) {
+            super.setCancelable(cancelable);
+            this.cancelable = cancelable;
+        }
+
+        @Override
+        public void setCanceledOnTouchOutside(boolean cancel) {
+            super.setCanceledOnTouchOutside(cancel);
+            this.canceledOnTouchOutside = cancel;
+            // Dialog turns cancelable back on with it
+            if (cancel) this.cancelable = true;
+        }
+    }
+
+    // A pooled dialog with the values it had right after being configured
+    private static final class Entry {
+        final PooledDialog dialog;
+        final WindowManager.LayoutParams windowParams;
+        final int peekHeight;
+        final int maxHeight;
+        final boolean skipCollapsed;
+        final boolean draggable;
+        final boolean hideable;
+        final int state;
+        final int sheetHeight;
+        final ColorStateList sheetColor;
+        final int navigationBarColor;
+        final boolean cancelable;
+        final boolean canceledOnTouchOutside;
+
+        @SuppressWarnings("deprecation")
+        Entry(PooledDialog dialog) {
+            this.dialog = dialog;
+            cancelable = dialog.cancelable;
+            canceledOnTouchOutside = dialog.canceledOnTouchOutside;
+            Window window = dialog.getWindow();
+            windowParams = window != null ? WindowParams.edit(window) : null;
+            navigationBarColor = window != null ? window.getNavigationBarColor() : 0;
+
+            BottomSheetBehavior<?> behavior = dialog.getBehavior();
+            peekHeight = behavior.getPeekHeight();
+            maxHeight = behavior.getMaxHeight();
+            skipCollapsed = behavior.getSkipCollapsed();
+            draggable = behavior.isDraggable();
+            hideable = behavior.isHideable();
+            state = behavior.getState();
+
+            View sheet = getSheet();
+            sheetHeight = sheet != null ? sheet.getLayoutParams().height : ViewGroup.LayoutParams.WRAP_CONTENT;
+            Drawable background = sheet != null ? sheet.getBackground() : null;
+            sheetColor = background instanceof MaterialShapeDrawable
+                    ? ((MaterialShapeDrawable) background).getFillColor() : null;
+        }
+
+        View getSheet() {
+            SheetHolder holder = SheetHolder.of(dialog);
+            return holder != null ? holder.sheet : null;
+        }
+
+        @SuppressWarnings("deprecation")
+        void reset() {
+            dialog.setOnShowListener(null);
+            dialog.setOnDismissListener(null);
+            dialog.setOnCancelListener(null);
+            // Touch outside first, turning it on makes the dialog cancelable again
+            if (dialog.canceledOnTouchOutside != canceledOnTouchOutside) dialog.setCanceledOnTouchOutside(canceledOnTouchOutside);
+            if (dialog.cancelable != cancelable) dialog.setCancelable(cancelable);
+
+            Window window = dialog.getWindow();
+            if (window != null && windowParams != null) {
+                WindowParams.commit(window, windowParams);
+                if (window.getNavigationBarColor() != navigationBarColor) window.setNavigationBarColor(navigationBarColor);
+            }
+
+            SheetHolder holder = SheetHolder.of(dialog);
+            if (holder != null) {
+                holder.clearListeners();
+                holder.detachSizer();
+            }
+
+            View sheet = getSheet();
+            if (sheet instanceof ViewGroup) {
+                ((ViewGroup) sheet).removeAllViews();
+                InsetsDispatcher.of(sheet).removeListener(BottomSheetManager.class);
+
+                ViewGroup.LayoutParams params = sheet.getLayoutParams();
+                if (params.height != sheetHeight) {
+                    params.height = sheetHeight;
+                    sheet.setLayoutParams(params);
+                }
+                Drawable background = sheet.getBackground();
+                if (sheetColor != null && background instanceof MaterialShapeDrawable) {
+                    ((MaterialShapeDrawable) background).setFillColor(sheetColor);
+                }
+            }
+
+            BottomSheetBehavior<?> behavior = dialog.getBehavior();
+            if (behavior.getMaxHeight() != maxHeight) behavior.setMaxHeight(maxHeight);
+            if (behavior.getPeekHeight() != peekHeight) behavior.setPeekHeight(peekHeight);
+            if (behavior.getSkipCollapsed() != skipCollapsed) behavior.setSkipCollapsed(skipCollapsed);
+            if (behavior.isDraggable() != draggable) behavior.setDraggable(draggable);
+            if (behavior.isHideable() != hideable) behavior.setHideable(hideable);
+            if (behavior.getState() != state) behavior.setState(state);
+        }
+    }
+}
@@ -4,13 +4,17 @@ package com.devmob.activityhelper.managers;
 import android.app.Activity;
 import android.app.Dialog;
 import android.graphics.Rect;
-import android.os.Build;
 import android.view.Gravity;
+import android.view.View;
 import android.view.ViewTreeObserver;
 import android.view.Window;
 import android.view.WindowManager;
 import android.widget.FrameLayout;
 
+import androidx.activity.ComponentActivity;
+import androidx.annotation.LayoutRes;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.annotation.StyleRes;
 
 public class DialogManager {
@@ -22,6 +26,8 @@ public class DialogManager {
     private static final float DEFAULT_ELEVATION = 0f;
     private static final float DEFAULT_DIM = 0.3f;
     private static final int DEFAULT_BLUR_RADIUS = 20;
+    private static final long DEFAULT_CONTENT_TIMEOUT = 250;
+    private static final long KEYBOARD_LISTENER_DEADLINE = 200;
     // Optional overrides
     private Integer width = null;
     private Integer height = null;
@@ -31,6 +37,11 @@ public class DialogManager {
     private Float dimAmount = null;
     private @StyleRes Integer animations = null;
     private Integer blurRadius = null;
+    // Async content
+    private AsyncContent content = null;
+    private ContentListener contentListener = null;
+    private long contentTimeout = DEFAULT_CONTENT_TIMEOUT;
+    private @LayoutRes int placeholder = 0;
 
     private DialogManager(Dialog dialog) {
         this.dialog = dialog;
@@ -81,37 +92,98 @@ public class DialogManager {
         return this;
     }
 
+    /**
+     * Starts inflating {@code layout} off the main thread now; {@link #show()} shows the
+     * dialog once it is set as the content. {@code listener} binds the inflated view.
+     */
+    public DialogManager setContentAsync(@LayoutRes int layout, @Nullable ContentListener listener) {
+        if (dialog == null) return this;
+        if (content != null) content.cancel();
+        this.content = AsyncContent.inflate(dialog.getContext(), layout);
+        this.contentListener = listener;
+        return this;
+    }
+
+    /**
+     * How long {@link #show()} waits for async content before showing {@code placeholder}
+     * (0 for an empty dialog).
+     */
+    public DialogManager setContentTimeout(long millis, @LayoutRes int placeholder) {
+        this.contentTimeout = millis;
+        this.placeholder = placeholder;
+        return this;
+    }
+
     // ---- APPLY ----
     public void apply() {
+        long start = MainThreadMonitor.begin();
+        applyNow();
+        MainThreadMonitor.end(MainThreadMonitor.OP_APPLY, start);
+    }
+
+    private void applyNow() {
         if (dialog == null || window == null) return;
 
-        // --- DEFAULTS ---
-        if (animations != null) window.setWindowAnimations(animations);
-        window.setDimAmount(DEFAULT_DIM);
-//        window.setBackgroundDrawableResource(DEFAULT_BACKGROUND);
-        window.setElevation(DEFAULT_ELEVATION); // Biggest elevation changes background color
-        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.S) {
-            window.addFlags(WindowManager.LayoutParams.FLAG_BLUR_BEHIND);
-            window.getAttributes().setBlurBehindRadius(DEFAULT_BLUR_RADIUS);
+        // All window attributes go out in one setAttributes() call
+        WindowManager.LayoutParams params = WindowParams.edit(window);
+
+        // --- DEFAULTS + OVERRIDES ---
+        if (animations != null) params.windowAnimations = animations;
+        params.dimAmount = dimAmount != null ? dimAmount : DEFAULT_DIM;
+        // Blur only when the policy allows it, dim only otherwise
+        BlurPolicy.getInstance(dialog.getContext())
+                .applyTo(window, params, blurRadius != null ? blurRadius : DEFAULT_BLUR_RADIUS);
+        if (gravity != null) params.gravity = gravity;
+        if (width != null && height != null) {
+            params.width = width;
+            params.height = height;
         }
-//
-////        dialog.
-//        // --- OVERRIDES ---
-        if (dimAmount != null) window.setDimAmount(dimAmount);
+        if (softInputMode != null) params.softInputMode = softInputMode;
+
+        WindowParams.commit(window, params);
+
+        // Not part of LayoutParams
+        if (window.getElevation() != DEFAULT_ELEVATION) window.setElevation(DEFAULT_ELEVATION); // Biggest elevation changes background color
         if (cancelable != null) dialog.setCancelable(cancelable);
-        if (gravity != null) window.setGravity(gravity);
-        if (width != null && height != null) window.setLayout(width, height);
-        if (softInputMode != null) window.setSoftInputMode(softInputMode);
+    }
+
+    /**
+     * Applies the configuration and shows the dialog, as soon as its async content is ready
+     * if there is one.
+     */
+    public void show() {
+        if (dialog == null) return;
+        apply();
+        if (content != null) {
+            content.deliver(dialog, this::onContentReady, true, contentTimeout, placeholder);
+        } else {
+            dialog.show();
+        }
+    }
+
+    /**
+     * Applies the configuration and queues the dialog on the activity's {@link DialogScheduler}
+     * instead of showing it right away.
+     *
+     * @return false when a dialog with the same key is already queued or showing
+     */
+    public boolean schedule(@NonNull ComponentActivity activity, @NonNull String key, int priority) {
+        if (dialog == null) return false;
+        apply();
+        if (content != null) content.deliver(dialog, this::onContentReady, false, contentTimeout, placeholder);
+        return DialogScheduler.of(activity).enqueue(key, priority, dialog);
     }
 
     public DialogManager setKeyboardListener(Activity activity, final KeyboardVisibilityListener listener) {
-        if (activity == null) return this;
+        if (activity == null || dialog == null) return this;
+        RetainedObjectWatcher.watch(activity, "DialogManager.setKeyboardListener");
         final FrameLayout rootLayout = activity.findViewById(android.R.id.content);
-        rootLayout.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+        final ViewTreeObserver.OnPreDrawListener preDrawListener = new ViewTreeObserver.OnPreDrawListener() {
             boolean wasOpened = false;
 
             @Override
             public boolean onPreDraw() {
+                long start = MainThreadMonitor.begin();
                 Rect rect = new Rect();
                 rootLayout.getWindowVisibleDisplayFrame(rect);
                 int screenHeight = rootLayout.getHeight();
@@ -122,15 +194,40 @@ public class DialogManager {
                     wasOpened = isKeyboardOpen;
                     listener.onKeyboardVisibilityChanged(isKeyboardOpen);
                 }
+                MainThreadMonitor.end(MainThreadMonitor.OP_KEYBOARD, start);
                 return true;
             }
-        });
+        };
+        final View decorView = dialog.getWindow().getDecorView();
+        IdleScheduler.getInstance().schedule(activity, () -> {
+            // Only while the dialog is showing
+            if (decorView.isAttachedToWindow()) rootLayout.getViewTreeObserver().addOnPreDrawListener(preDrawListener);
+            decorView.addOnAttachStateChangeListener(new View.OnAttachStateChangeListener() {
+                @Override
+                public void onViewAttachedToWindow(@NonNull View v) {
+                    rootLayout.getViewTreeObserver().addOnPreDrawListener(preDrawListener);
+                }
+
+                @Override
+                public void onViewDetachedFromWindow(@NonNull View v) {
+                    rootLayout.getViewTreeObserver().removeOnPreDrawListener(preDrawListener);
+                }
+            });
+        }, 0, KEYBOARD_LISTENER_DEADLINE);
         return this;
     }
 
+    private void onContentReady(View view) {
+        if (contentListener != null) contentListener.onContentReady(view);
+    }
+
     public interface KeyboardVisibilityListener {
         void onKeyboardVisibilityChanged(boolean isOpen);
     }
 
+    public interface ContentListener {
+        void onContentReady(View content);
+    }
+
 
 }
@@ -0,0 +1,290 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Dialog;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.View;
+import android.view.Window;
+
+import androidx.activity.ComponentActivity;
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Per-activity queue for dialogs and sheets configured by {@link DialogManager} /
+ * {@link BottomSheetManager}.
+ * <p>
+ * At most {@link #setMaxVisible N} dialogs are shown at once, highest priority first,
+ * and a key that is already queued or showing is dropped. While a navigation is in
+ * progress only {@link #PRIORITY_HIGH} dialogs are shown.
+ */
+public final class DialogScheduler implements DefaultLifecycleObserver {
+
+    public static final int PRIORITY_LOW = -100;
+    public static final int PRIORITY_NORMAL = 0;
+    public static final int PRIORITY_HIGH = 100;
+
+    private static final int DEFAULT_MAX_VISIBLE = 1;
+    // A navigation that never reports its end does not block the queue forever
+    private static final long NAVIGATION_TIMEOUT = 1000;
+
+    private static final Map<ComponentActivity, DialogScheduler> schedulers = new HashMap<>();
+
+    private final ComponentActivity activity;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Request> queue = new ArrayList<>();
+    private final Map<String, Request> showing = new LinkedHashMap<>();
+
+    private int maxVisible = DEFAULT_MAX_VISIBLE;
+    private int navigationDepth = 0;
+
+    // Stats
+    private int shownCount = 0;
+    private int dedupedCount = 0;
+    private int deferredCount = 0;
+    private int maxQueueLength = 0;
+    private long totalWaitMillis = 0;
+
+    private final Runnable navigationTimeout = () -> {
+        navigationDepth = 0;
+        drain();
+    };
+
+    private DialogScheduler(ComponentActivity activity) {
+        this.activity = activity;
+        activity.getLifecycle().addObserver(this);
+    }
+
+    // ENTRY POINT
+    public static DialogScheduler of(@NonNull ComponentActivity activity) {
+        DialogScheduler scheduler = schedulers.get(activity);
+        if (scheduler == null) {
+            scheduler = new DialogScheduler(activity);
+            schedulers.put(activity, scheduler);
+        }
+        return scheduler;
+    }
+
+    /**
+     * The activity's scheduler if one was created, without creating it.
+     */
+    @Nullable
+    public static DialogScheduler peek(@Nullable ComponentActivity activity) {
+        return activity == null ? null : schedulers.get(activity);
+    }
+
+    public DialogScheduler setMaxVisible(int maxVisible) {
+        this.maxVisible = Math.max(1, maxVisible);
+        drain();
+        return this;
+    }
+
+    // ---- Queue ----
+
+    /**
+     * Queues {@code dialog} under {@code key}.
+     *
+     * @return false when a dialog with the same key is already queued or showing
+     */
+    public boolean enqueue(@NonNull String key, int priority, @NonNull Dialog dialog) {
+        if (showing.containsKey(key) || indexOf(key) >= 0) {
+            dedupedCount++;
+            return false;
+        }
+
+        Request request = new Request(key, priority, dialog);
+        RetainedObjectWatcher.watch(dialog, "DialogScheduler");
+        int index = queue.size();
+        // Higher priority first, FIFO within a priority
+        while (index > 0 && queue.get(index - 1).priority < priority) index--;
+        queue.add(index, request);
+        maxQueueLength = Math.max(maxQueueLength, queue.size());
+
+        drain();
+        return true;
+    }
+
+    /**
+     * Removes a queued request or dismisses the dialog showing under {@code key}.
+     */
+    public void cancel(@NonNull String key) {
+        int index = indexOf(key);
+        if (index >= 0) RetainedObjectWatcher.release(queue.remove(index).dialog, "DialogScheduler");
+
+        Request request = showing.get(key);
+        if (request != null && request.dialog.isShowing()) request.dialog.dismiss();
+    }
+
+    /**
+     * Drops the queue and dismisses every dialog shown by this scheduler.
+     */
+    public void dismissAll() {
+        clearQueue();
+        for (Request request : new ArrayList<>(showing.values())) {
+            if (request.dialog.isShowing()) request.dialog.dismiss();
+        }
+    }
+
+    // ---- Navigation ----
+
+    public void onNavigationStarted() {
+        navigationDepth++;
+        handler.removeCallbacks(navigationTimeout);
+        handler.postDelayed(navigationTimeout, NAVIGATION_TIMEOUT);
+    }
+
+    public void onNavigationFinished() {
+        if (navigationDepth > 0) navigationDepth--;
+        if (navigationDepth == 0) {
+            handler.removeCallbacks(navigationTimeout);
+            drain();
+        }
+    }
+
+    public boolean isNavigating() {
+        return navigationDepth > 0;
+    }
+
+    // ---- Metrics ----
+
+    public int getQueueLength() {
+        return queue.size();
+    }
+
+    public int getShowingCount() {
+        return showing.size();
+    }
+
+    public int getShownCount() {
+        return shownCount;
+    }
+
+    public int getDedupedCount() {
+        return dedupedCount;
+    }
+
+    /**
+     * Times a dialog was held back because a navigation was in progress.
+     */
+    public int getDeferredCount() {
+        return deferredCount;
+    }
+
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    /**
+     * Average time between enqueue and show, in milliseconds.
+     */
+    public long getAverageWaitMillis() {
+        return shownCount == 0 ? 0 : totalWaitMillis / shownCount;
+    }
+
+    // ---- Internal ----
+
+    private int indexOf(String key) {
+        for (int i = 0; i < queue.size(); i++) {
+            if (queue.get(i).key.equals(key)) return i;
+        }
+        return -1;
+    }
+
+    private void clearQueue() {
+        for (Request request : queue) RetainedObjectWatcher.release(request.dialog, "DialogScheduler");
+        queue.clear();
+    }
+
+    private void drain() {
+        if (activity.isFinishing()) return;
+        if (!activity.getLifecycle().getCurrentState().isAtLeast(Lifecycle.State.STARTED)) return;
+
+        for (int i = 0; i < queue.size() && showing.size() < maxVisible; ) {
+            Request request = queue.get(i);
+            if (navigationDepth > 0 && request.priority < PRIORITY_HIGH) {
+                if (!request.deferred) {
+                    request.deferred = true;
+                    deferredCount++;
+                }
+                i++;
+                continue;
+            }
+            queue.remove(i);
+            show(request);
+        }
+    }
+
+    private void show(Request request) {
+        Window window = request.dialog.getWindow();
+        if (window == null) return;
+
+        showing.put(request.key, request);
+        View decorView = window.getDecorView();
+        // Added before show(): a dialog dismissed while showing still leaves
+        View.OnAttachStateChangeListener onDismissed = new View.OnAttachStateChangeListener() {
+            @Override
+            public void onViewAttachedToWindow(@NonNull View v) {
+            }
+
+            @Override
+            public void onViewDetachedFromWindow(@NonNull View v) {
+                // Dismissed, without taking over the dialog's OnDismissListener
+                v.removeOnAttachStateChangeListener(this);
+                if (showing.get(request.key) == request) showing.remove(request.key);
+                RetainedObjectWatcher.release(request.dialog, "DialogScheduler");
+                drain();
+            }
+        };
+        decorView.addOnAttachStateChangeListener(onDismissed);
+
+        try {
+            request.dialog.show();
+        } catch (RuntimeException e) {
+            // Window token gone, e.g. activity finishing
+            decorView.removeOnAttachStateChangeListener(onDismissed);
+            showing.remove(request.key);
+            RetainedObjectWatcher.release(request.dialog, "DialogScheduler");
+            return;
+        }
+        totalWaitMillis += SystemClock.uptimeMillis() - request.enqueueTime;
+        shownCount++;
+    }
+
+    @Override
+    public void onStart(@NonNull LifecycleOwner owner) {
+        drain();
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        handler.removeCallbacksAndMessages(null);
+        clearQueue();
+        for (Request request : showing.values()) RetainedObjectWatcher.release(request.dialog, "DialogScheduler");
+        showing.clear();
+        schedulers.remove(activity);
+    }
+
+    private static final class Request {
+        final String key;
+        final int priority;
+        final Dialog dialog;
+        final long enqueueTime = SystemClock.uptimeMillis();
+        boolean deferred = false;
+
+        Request(String key, int priority, Dialog dialog) {
+            this.key = key;
+            this.priority = priority;
+            this.dialog = dialog;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package com.devmob.activityhelper.managers;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Main thread scheduler for housekeeping that must not compete with frames: a task runs
+ * the first time the main thread is idle after its delay, or when its deadline passes
+ * if the thread never goes idle before that.
+ * <p>
+ * Used by the navigators and managers for deferrable work (fragment cleanup, debug dumps,
+ * listener setup). Must be used from the main thread.
+ */
+public final class IdleScheduler implements MessageQueue.IdleHandler {
+
+    // Work done per idle pass, the rest waits for the next one
+    private static final long IDLE_SLICE = 4;
+
+    private static IdleScheduler instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    // Sorted by deadline
+    private final List<Task> tasks = new ArrayList<>();
+    private boolean idleHandlerRegistered = false;
+
+    // Stats
+    private int idleRunCount = 0;
+    private int deadlineRunCount = 0;
+
+    private final Runnable tick = this::onTick;
+
+    private IdleScheduler() {
+    }
+
+    // ENTRY POINT
+    public static IdleScheduler getInstance() {
+        if (instance == null) {
+            instance = new IdleScheduler();
+        }
+        return instance;
+    }
+
+    // ---- Scheduling ----
+
+    /**
+     * Runs {@code task} when the main thread is idle, not before {@code delayMillis} and
+     * at the latest after {@code deadlineMillis}.
+     *
+     * @param owner used to {@link #cancel} every task of a component at once
+     */
+    public void schedule(@NonNull Object owner, @NonNull Runnable task, long delayMillis, long deadlineMillis) {
+        long now = SystemClock.uptimeMillis();
+        Task entry = new Task(owner, task, now + delayMillis, now + Math.max(delayMillis, deadlineMillis));
+
+        int index = tasks.size();
+        while (index > 0 && tasks.get(index - 1).deadline > entry.deadline) index--;
+        tasks.add(index, entry);
+        reschedule();
+    }
+
+    /**
+     * Drops every pending task of {@code owner}.
+     */
+    public void cancel(@NonNull Object owner) {
+        boolean removed = false;
+        for (int i = tasks.size() - 1; i >= 0; i--) {
+            if (tasks.get(i).owner == owner) {
+                tasks.remove(i);
+                removed = true;
+            }
+        }
+        if (removed) reschedule();
+    }
+
+    public int getPendingCount() {
+        return tasks.size();
+    }
+
+    /**
+     * Tasks run while the main thread was idle.
+     */
+    public int getIdleRunCount() {
+        return idleRunCount;
+    }
+
+    /**
+     * Tasks run because their deadline passed first.
+     */
+    public int getDeadlineRunCount() {
+        return deadlineRunCount;
+    }
+
+    // ---- Internal ----
+
+    @Override
+    public boolean queueIdle() {
+        long start = SystemClock.uptimeMillis();
+        for (int i = 0; i < tasks.size(); ) {
+            Task task = tasks.get(i);
+            if (task.notBefore > SystemClock.uptimeMillis()) {
+                i++;
+                continue;
+            }
+            tasks.remove(i);
+            idleRunCount++;
+            task.runnable.run();
+            if (SystemClock.uptimeMillis() - start >= IDLE_SLICE) break;
+        }
+
+        // Returning false unregisters the handler, it must not be added back from here
+        idleHandlerRegistered = hasReadyTask();
+        postTick();
+        return idleHandlerRegistered;
+    }
+
+    private void onTick() {
+        long now = SystemClock.uptimeMillis();
+        while (!tasks.isEmpty() && tasks.get(0).deadline <= now) {
+            deadlineRunCount++;
+            tasks.remove(0).runnable.run();
+        }
+        reschedule();
+    }
+
+    private void reschedule() {
+        if (!idleHandlerRegistered && hasReadyTask()) {
+            idleHandlerRegistered = true;
+            Looper.getMainLooper().getQueue().addIdleHandler(this);
+        }
+        postTick();
+    }
+
+    // Wakes up at the next delay end (so the queue goes idle again) or deadline
+    private void postTick() {
+        handler.removeCallbacks(tick);
+        if (tasks.isEmpty()) return;
+
+        long now = SystemClock.uptimeMillis();
+        long next = Long.MAX_VALUE;
+        for (int i = 0; i < tasks.size(); i++) {
+            Task task = tasks.get(i);
+            if (task.notBefore > now) next = Math.min(next, task.notBefore);
+            next = Math.min(next, task.deadline);
+        }
+        handler.postAtTime(tick, next);
+    }
+
+    private boolean hasReadyTask() {
+        long now = SystemClock.uptimeMillis();
+        for (int i = 0; i < tasks.size(); i++) {
+            if (tasks.get(i).notBefore <= now) return true;
+        }
+        return false;
+    }
+
+    private static final class Task {
+        final Object owner;
+        final Runnable runnable;
+        final long notBefore;
+        final long deadline;
+
+        Task(Object owner, Runnable runnable, long notBefore, long deadline) {
+            this.owner = owner;
+            this.runnable = runnable;
+            this.notBefore = notBefore;
+            this.deadline = deadline;
+        }
+    }
+}
@@ -0,0 +1,211 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Activity;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.core.graphics.Insets;
+import androidx.core.view.WindowInsetsCompat;
+
+import com.devmob.activityhelper.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binds views to window insets: the selected edges get the view's original
+ * padding (or margin) plus the current insets of the given types.
+ * Views are only touched when the computed value differs from what they have.
+ */
+public final class InsetsBinder {
+
+    public static final int EDGE_LEFT = 1;
+    public static final int EDGE_TOP = 1 << 1;
+    public static final int EDGE_RIGHT = 1 << 2;
+    public static final int EDGE_BOTTOM = 1 << 3;
+    public static final int EDGE_HORIZONTAL = EDGE_LEFT | EDGE_RIGHT;
+    public static final int EDGE_VERTICAL = EDGE_TOP | EDGE_BOTTOM;
+    public static final int EDGE_ALL = EDGE_HORIZONTAL | EDGE_VERTICAL;
+
+    private final InsetsDispatcher dispatcher;
+    private final List<Binding> bindings = new ArrayList<>();
+
+    private int updateCount = 0;
+    private int skipCount = 0;
+
+    private InsetsBinder(InsetsDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+        dispatcher.setListener(this, InsetsDispatcher.PRIORITY_DEFAULT, (v, insets) -> {
+            for (int i = 0; i < bindings.size(); i++) {
+                apply(bindings.get(i), insets);
+            }
+            return insets;
+        });
+    }
+
+    // ENTRY POINT
+    public static InsetsBinder of(@NonNull Activity activity) {
+        return of((View) activity.findViewById(android.R.id.content));
+    }
+
+    public static InsetsBinder of(@NonNull View rootView) {
+        Object tag = rootView.getTag(R.id.activity_helper_insets_binder);
+        if (tag instanceof InsetsBinder) return (InsetsBinder) tag;
+
+        InsetsBinder binder = new InsetsBinder(InsetsDispatcher.of(rootView));
+        rootView.setTag(R.id.activity_helper_insets_binder, binder);
+        return binder;
+    }
+
+    // ---- Bindings ----
+
+    /**
+     * Adds the insets of {@code types} (see {@link WindowInsetsCompat.Type}) to the
+     * padding of {@code view} on the given {@code edges}.
+     */
+    public InsetsBinder padding(@NonNull View view, int types, int edges) {
+        return bind(view, types, edges, false);
+    }
+
+    /**
+     * Same as {@link #padding} but applied to the view's margins.
+     * Ignored when the view has no {@link ViewGroup.MarginLayoutParams}.
+     */
+    public InsetsBinder margin(@NonNull View view, int types, int edges) {
+        return bind(view, types, edges, true);
+    }
+
+    /**
+     * Removes the padding and the margin binding of {@code view}, restoring its original values.
+     */
+    public void unbind(@NonNull View view) {
+        for (int i = bindings.size() - 1; i >= 0; i--) {
+            Binding binding = bindings.get(i);
+            if (binding.view == view) {
+                bindings.remove(i);
+                restore(binding);
+            }
+        }
+    }
+
+    public void clear() {
+        for (Binding binding : bindings) {
+            restore(binding);
+        }
+        bindings.clear();
+    }
+
+    /**
+     * Number of views updated / left untouched because nothing changed, since creation.
+     */
+    public int getUpdateCount() {
+        return updateCount;
+    }
+
+    public int getSkipCount() {
+        return skipCount;
+    }
+
+    private InsetsBinder bind(View view, int types, int edges, boolean margin) {
+        Binding binding = null;
+        for (int i = 0; i < bindings.size(); i++) {
+            Binding existing = bindings.get(i);
+            if (existing.view == view && existing.margin == margin) {
+                // Keep the original values captured by the first bind
+                binding = new Binding(view, types, edges, margin, existing);
+                bindings.set(i, binding);
+                break;
+            }
+        }
+        if (binding == null) {
+            binding = new Binding(view, types, edges, margin, null);
+            bindings.add(binding);
+        }
+
+        WindowInsetsCompat insets = dispatcher.getLastInsets();
+        if (insets != null) apply(binding, insets);
+        return this;
+    }
+
+    private void apply(Binding binding, WindowInsetsCompat windowInsets) {
+        Insets insets = windowInsets.getInsets(binding.types);
+        int edges = binding.edges;
+
+        int left = binding.left + ((edges & EDGE_LEFT) != 0 ? insets.left : 0);
+        int top = binding.top + ((edges & EDGE_TOP) != 0 ? insets.top : 0);
+        int right = binding.right + ((edges & EDGE_RIGHT) != 0 ? insets.right : 0);
+        int bottom = binding.bottom + ((edges & EDGE_BOTTOM) != 0 ? insets.bottom : 0);
+
+        if (setValues(binding, left, top, right, bottom)) {
+            updateCount++;
+        } else {
+            skipCount++;
+        }
+    }
+
+    private void restore(Binding binding) {
+        setValues(binding, binding.left, binding.top, binding.right, binding.bottom);
+    }
+
+    private static boolean setValues(Binding binding, int left, int top, int right, int bottom) {
+        View view = binding.view;
+
+        if (binding.margin) {
+            if (!(view.getLayoutParams() instanceof ViewGroup.MarginLayoutParams)) return false;
+            ViewGroup.MarginLayoutParams params = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+            if (params.leftMargin == left && params.topMargin == top
+                    && params.rightMargin == right && params.bottomMargin == bottom) {
+                return false;
+            }
+            params.setMargins(left, top, right, bottom);
+            view.setLayoutParams(params);
+            return true;
+        }
+
+        if (view.getPaddingLeft() == left && view.getPaddingTop() == top
+                && view.getPaddingRight() == right && view.getPaddingBottom() == bottom) {
+            return false;
+        }
+        view.setPadding(left, top, right, bottom);
+        return true;
+    }
+
+    private static final class Binding {
+        final View view;
+        final int types;
+        final int edges;
+        final boolean margin;
+
+        // Values the view had before it was bound
+        final int left;
+        final int top;
+        final int right;
+        final int bottom;
+
+        Binding(View view, int types, int edges, boolean margin, Binding previous) {
+            this.view = view;
+            this.types = types;
+            this.edges = edges;
+            this.margin = margin;
+
+            if (previous != null) {
+                left = previous.left;
+                top = previous.top;
+                right = previous.right;
+                bottom = previous.bottom;
+            } else if (margin && view.getLayoutParams() instanceof ViewGroup.MarginLayoutParams) {
+                ViewGroup.MarginLayoutParams params = (ViewGroup.MarginLayoutParams) view.getLayoutParams();
+                left = params.leftMargin;
+                top = params.topMargin;
+                right = params.rightMargin;
+                bottom = params.bottomMargin;
+            } else {
+                left = view.getPaddingLeft();
+                top = view.getPaddingTop();
+                right = view.getPaddingRight();
+                bottom = view.getPaddingBottom();
+            }
+        }
+    }
+}
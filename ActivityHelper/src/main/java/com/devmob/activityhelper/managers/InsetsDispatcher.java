@@ -0,0 +1,153 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Activity;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.ViewCompat;
+import androidx.core.view.WindowInsetsCompat;
+
+import com.devmob.activityhelper.R;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Owns the single OnApplyWindowInsetsListener of a root view and fans every
+ * dispatch out to its subscribers, highest priority first.
+ * Each subscriber receives the insets returned by the previous one; once they
+ * are consumed the remaining subscribers are skipped.
+ */
+public final class InsetsDispatcher {
+
+    public static final int PRIORITY_HIGH = 100;
+    public static final int PRIORITY_DEFAULT = 0;
+    public static final int PRIORITY_LOW = -100;
+
+    private final View rootView;
+    private final List<Entry> entries = new ArrayList<>();
+    private Entry[] snapshot = new Entry[0];
+
+    private WindowInsetsCompat lastInsets;
+    private int dispatchCount = 0;
+
+    private InsetsDispatcher(View rootView) {
+        this.rootView = rootView;
+        ViewCompat.setOnApplyWindowInsetsListener(rootView, (v, insets) -> dispatch(v, insets));
+    }
+
+    // ENTRY POINT
+    public static InsetsDispatcher of(@NonNull Activity activity) {
+        return of(activity.findViewById(android.R.id.content));
+    }
+
+    public static InsetsDispatcher of(@NonNull View rootView) {
+        Object tag = rootView.getTag(R.id.activity_helper_insets_dispatcher);
+        if (tag instanceof InsetsDispatcher) return (InsetsDispatcher) tag;
+
+        InsetsDispatcher dispatcher = new InsetsDispatcher(rootView);
+        rootView.setTag(R.id.activity_helper_insets_dispatcher, dispatcher);
+        return dispatcher;
+    }
+
+    // ---- Subscriptions ----
+
+    public InsetsDispatcher addListener(@NonNull Listener listener) {
+        return addListener(listener, PRIORITY_DEFAULT);
+    }
+
+    public InsetsDispatcher addListener(@NonNull Listener listener, int priority) {
+        return setListener(listener, priority, listener);
+    }
+
+    /**
+     * Registers {@code listener} under {@code key}, replacing whatever was registered
+     * under the same key before. Used by the managers so that calling apply() again
+     * does not stack listeners.
+     */
+    public InsetsDispatcher setListener(@NonNull Object key, int priority, @NonNull Listener listener) {
+        removeEntry(key);
+
+        Entry entry = new Entry(key, priority, listener);
+        int index = entries.size();
+        // Stable: equal priorities keep registration order
+        while (index > 0 && entries.get(index - 1).priority < priority) index--;
+        entries.add(index, entry);
+        snapshot = entries.toArray(new Entry[0]);
+
+        // Late subscribers get the current insets without forcing a new insets pass
+        if (lastInsets != null) {
+            listener.onApplyInsets(rootView, lastInsets);
+        }
+        return this;
+    }
+
+    public void removeListener(@NonNull Object keyOrListener) {
+        if (removeEntry(keyOrListener)) {
+            snapshot = entries.toArray(new Entry[0]);
+        }
+    }
+
+    private boolean removeEntry(Object key) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).key == key) {
+                entries.remove(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public void requestApplyInsets() {
+        ViewCompat.requestApplyInsets(rootView);
+    }
+
+    @Nullable
+    public WindowInsetsCompat getLastInsets() {
+        return lastInsets;
+    }
+
+    public int getListenerCount() {
+        return entries.size();
+    }
+
+    public int getDispatchCount() {
+        return dispatchCount;
+    }
+
+    // ---- Dispatch ----
+
+    private WindowInsetsCompat dispatch(View v, WindowInsetsCompat insets) {
+        lastInsets = insets;
+        dispatchCount++;
+
+        WindowInsetsCompat current = insets;
+        for (Entry entry : snapshot) {
+            WindowInsetsCompat result = entry.listener.onApplyInsets(v, current);
+            if (result != null) current = result;
+            if (current.isConsumed()) break;
+        }
+        return current;
+    }
+
+    private static final class Entry {
+        final Object key;
+        final int priority;
+        final Listener listener;
+
+        Entry(Object key, int priority, Listener listener) {
+            this.key = key;
+            this.priority = priority;
+            this.listener = listener;
+        }
+    }
+
+    public interface Listener {
+        /**
+         * @return the insets passed on to lower priority listeners, or
+         * {@link WindowInsetsCompat#CONSUMED} to stop the dispatch.
+         */
+        WindowInsetsCompat onApplyInsets(View view, WindowInsetsCompat insets);
+    }
+}
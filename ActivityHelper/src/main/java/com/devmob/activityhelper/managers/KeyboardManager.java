@@ -11,18 +11,18 @@ import android.widget.FrameLayout;
 
 import androidx.annotation.Nullable;
 import androidx.core.graphics.Insets;
-import androidx.core.view.ViewCompat;
 import androidx.core.view.WindowInsetsCompat;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 public class KeyboardManager {
 
+    private static final long KEYBOARD_LISTENER_DEADLINE = 200;
+
     private static KeyboardManager instance;
-    private final List<KeyboardListener> listeners = new ArrayList<>();
-    private final List<InsetsListener> insetsListeners = new ArrayList<>();
+    private static final KeyboardRequestPipeline requests = new KeyboardRequestPipeline();
+    private final ListenerList<KeyboardListener> listeners = new ListenerList<>();
+    private final ListenerList<InsetsListener> insetsListeners = new ListenerList<>();
 
     private boolean isKeyboardVisible = false;
 
@@ -33,9 +33,9 @@ public class KeyboardManager {
         return instance;
     }
     public void initialize(Activity activity, @Nullable InsetsListener listener) {
-        View rootView = activity.findViewById(android.R.id.content);
-
-        ViewCompat.setOnApplyWindowInsetsListener(rootView, (v, insets) -> {
+        RetainedObjectWatcher.watch(activity, "KeyboardManager.initialize");
+        InsetsDispatcher.of(activity).setListener(KeyboardManager.class, InsetsDispatcher.PRIORITY_HIGH, (v, insets) -> {
+            long start = MainThreadMonitor.begin();
             Insets imeInsets = insets.getInsets(WindowInsetsCompat.Type.ime());
             boolean isVisible = insets.isVisible(WindowInsetsCompat.Type.ime());
             if (isVisible != isKeyboardVisible) {
@@ -46,6 +46,7 @@ public class KeyboardManager {
             if (listener != null) {
                 listener.onChange(insets);
             }
+            MainThreadMonitor.end(MainThreadMonitor.OP_KEYBOARD, start);
             return insets;
         });
     }
@@ -53,14 +54,16 @@ public class KeyboardManager {
     public static void attachKeyboardListener(Activity activity, final KeyboardListener listener) {
         if (activity == null) return;
 
+        RetainedObjectWatcher.watch(activity, "KeyboardManager.attachKeyboardListener");
         final FrameLayout rootLayout = activity.findViewById(android.R.id.content);
-        rootLayout.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+        final ViewTreeObserver.OnPreDrawListener preDrawListener = new ViewTreeObserver.OnPreDrawListener() {
             boolean wasOpened = false;
 
             private long lastCloseTime = 0;
 
             @Override
             public boolean onPreDraw() {
+                long start = MainThreadMonitor.begin();
                 Rect rect = new Rect();
                 rootLayout.getWindowVisibleDisplayFrame(rect);
                 int screenHeight = rootLayout.getHeight();
@@ -72,9 +75,13 @@ public class KeyboardManager {
                     wasOpened = isKeyboardOpen;
                     listener.onKeyboardVisibilityChanged(isKeyboardOpen);
                 }
+                MainThreadMonitor.end(MainThreadMonitor.OP_KEYBOARD, start);
                 return true;
             }
-        });
+        };
+        // Nothing to detect before the first frames, registered once the main thread is idle
+        IdleScheduler.getInstance().schedule(activity, () ->
+                rootLayout.getViewTreeObserver().addOnPreDrawListener(preDrawListener), 0, KEYBOARD_LISTENER_DEADLINE);
     }
 
     public static void closeKeyboard(Activity activity) {
@@ -82,23 +89,20 @@ public class KeyboardManager {
         View view = activity.getCurrentFocus();
 
         if (view != null) {
-            InputMethodManager imm =
-                    (InputMethodManager) activity.getSystemService(Context.INPUT_METHOD_SERVICE);
-            imm.hideSoftInputFromWindow(view.getWindowToken(), 0);
+            requests.requestHide(view);
             view.clearFocus();
         }
     }
     public static void closeKeyboard(View view) {
         if (view == null) return;
 
-        InputMethodManager imm = (InputMethodManager)
-                view.getContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+        InputMethodManager imm = requests.getInputMethodManager(view.getContext());
 
         if (imm == null) return;
 
         boolean wasKeyboardOpen = imm.isAcceptingText();
 
-        imm.hideSoftInputFromWindow(view.getWindowToken(), 0);
+        requests.requestHide(view);
 
         // ✅ Only remove focus if keyboard was open
         if (wasKeyboardOpen) {
@@ -109,8 +113,7 @@ public class KeyboardManager {
 
     public static void hideSoftKeyboard(Context context, View view) {
         if (view != null) {
-            InputMethodManager imm = (InputMethodManager) context.getSystemService(Context.INPUT_METHOD_SERVICE);
-            imm.hideSoftInputFromWindow(view.getWindowToken(), 0);
+            requests.requestHide(view);
             view.clearFocus();
         }
     }
@@ -121,22 +124,38 @@ public class KeyboardManager {
         // Move the cursor to the end of the text (simplified)
         view.setSelection(text.length());
 
-        // Show the keyboard
-        InputMethodManager imm = (InputMethodManager) context.getSystemService(Context.INPUT_METHOD_SERVICE);
-        if (imm != null) {
-            imm.showSoftInput(view, InputMethodManager.SHOW_IMPLICIT);
-        }
+        // Show the keyboard on the next frame, unless a later request overrides it
+        requests.requestShow(view);
+    }
+
+    /**
+     * Sends the pending show/hide request now instead of on the next frame.
+     */
+    public static void flushKeyboardRequests() {
+        requests.flush();
+    }
+
+    /**
+     * Number of show/hide requests that were overridden by a later request
+     * in the same frame and never reached the IME.
+     */
+    public static long getSuppressedKeyboardRequests() {
+        return requests.getSuppressedCount();
+    }
+
+    public static long getDispatchedKeyboardRequests() {
+        return requests.getDispatchedCount();
+    }
+
+    public static void resetKeyboardRequestStats() {
+        requests.resetStats();
     }
 
     public void addListener(KeyboardListener listener) {
-        if (!listeners.contains(listener)) {
-            listeners.add(listener);
-        }
+        listeners.add(listener);
     }
     public void addListener(InsetsListener listener) {
-        if (!insetsListeners.contains(listener)) {
-            insetsListeners.add(listener);
-        }
+        insetsListeners.add(listener);
     }
     public void removeListener(KeyboardListener listener) {
         listeners.remove(listener);
@@ -145,14 +164,8 @@ public class KeyboardManager {
         insetsListeners.remove(listener);
     }
     private void notifyListeners(WindowInsetsCompat insets, boolean isVisible) {
-        for (KeyboardListener listener : new ArrayList<>(listeners)) {
-            listener.onKeyboardVisibilityChanged(isVisible);
-        }
-
-        for (InsetsListener listener : new ArrayList<>(insetsListeners)) {
-            listener.onChange(insets);
-        }
-
+        listeners.forEach(listener -> listener.onKeyboardVisibilityChanged(isVisible));
+        insetsListeners.forEach(listener -> listener.onChange(insets));
     }
 
     public void cleanup() {
@@ -0,0 +1,124 @@
+package com.devmob.activityhelper.managers;
+
+import android.content.Context;
+import android.os.IBinder;
+import android.view.Choreographer;
+import android.view.View;
+import android.view.inputmethod.InputMethodManager;
+
+import androidx.annotation.Nullable;
+
+import java.lang.ref.WeakReference;
+
+/**
+ * Collects show/hide keyboard requests issued during a frame and sends only
+ * the last one to the IME on the next frame.
+ */
+final class KeyboardRequestPipeline implements Choreographer.FrameCallback {
+
+    private static final int REQUEST_NONE = 0;
+    private static final int REQUEST_SHOW = 1;
+    private static final int REQUEST_HIDE = 2;
+
+    private InputMethodManager inputMethodManager;
+
+    private int pendingRequest = REQUEST_NONE;
+    private WeakReference<View> pendingView;
+    private IBinder pendingWindowToken;
+    private boolean scheduled = false;
+
+    private long requestCount = 0;
+    private long dispatchedCount = 0;
+    private long suppressedCount = 0;
+
+    @Nullable
+    InputMethodManager getInputMethodManager(Context context) {
+        if (inputMethodManager == null && context != null) {
+            inputMethodManager = (InputMethodManager)
+                    context.getApplicationContext().getSystemService(Context.INPUT_METHOD_SERVICE);
+        }
+        return inputMethodManager;
+    }
+
+    void requestShow(View view) {
+        enqueue(REQUEST_SHOW, view, null);
+    }
+
+    void requestHide(View view) {
+        // Keep the token now, the view may be detached by the time the frame runs
+        enqueue(REQUEST_HIDE, view, view.getWindowToken());
+    }
+
+    private void enqueue(int request, View view, @Nullable IBinder windowToken) {
+        if (getInputMethodManager(view.getContext()) == null) return;
+
+        requestCount++;
+        if (pendingRequest != REQUEST_NONE) {
+            // The previous request never reached the IME
+            suppressedCount++;
+        }
+
+        pendingRequest = request;
+        pendingView = new WeakReference<>(view);
+        pendingWindowToken = windowToken;
+
+        if (!scheduled) {
+            scheduled = true;
+            Choreographer.getInstance().postFrameCallback(this);
+        }
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        scheduled = false;
+        flush();
+    }
+
+    /**
+     * Sends the pending request right away instead of waiting for the next frame.
+     */
+    void flush() {
+        if (scheduled) {
+            scheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+
+        int request = pendingRequest;
+        View view = pendingView != null ? pendingView.get() : null;
+        IBinder windowToken = pendingWindowToken;
+
+        pendingRequest = REQUEST_NONE;
+        pendingView = null;
+        pendingWindowToken = null;
+
+        if (request == REQUEST_NONE || inputMethodManager == null) return;
+
+        if (request == REQUEST_SHOW) {
+            if (view == null) return;
+            inputMethodManager.showSoftInput(view, InputMethodManager.SHOW_IMPLICIT);
+        } else {
+            if (windowToken == null && view != null) windowToken = view.getWindowToken();
+            if (windowToken == null) return;
+            inputMethodManager.hideSoftInputFromWindow(windowToken, 0);
+        }
+        dispatchedCount++;
+    }
+
+    long getRequestCount() {
+        return requestCount;
+    }
+
+    long getDispatchedCount() {
+        return dispatchedCount;
+    }
+
+    long getSuppressedCount() {
+        return suppressedCount;
+    }
+
+    void resetStats() {
+        requestCount = 0;
+        dispatchedCount = 0;
+        suppressedCount = 0;
+    }
+}
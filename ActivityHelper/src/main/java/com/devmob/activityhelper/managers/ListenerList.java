@@ -0,0 +1,55 @@
+package com.devmob.activityhelper.managers;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Listeners dispatched from an array snapshot taken on add / remove, so a dispatch copies
+ * nothing and listeners may unregister themselves while being notified.
+ */
+final class ListenerList<T> {
+
+    private static final Object[] EMPTY = new Object[0];
+
+    private final List<T> listeners = new ArrayList<>();
+    private Object[] snapshot = EMPTY;
+
+    /**
+     * @return false when {@code listener} was already registered
+     */
+    boolean add(@NonNull T listener) {
+        if (listeners.contains(listener)) return false;
+        listeners.add(listener);
+        snapshot = listeners.toArray();
+        return true;
+    }
+
+    boolean remove(@NonNull T listener) {
+        if (!listeners.remove(listener)) return false;
+        snapshot = listeners.isEmpty() ? EMPTY : listeners.toArray();
+        return true;
+    }
+
+    void clear() {
+        listeners.clear();
+        snapshot = EMPTY;
+    }
+
+    int size() {
+        return snapshot.length;
+    }
+
+    /**
+     * Calls {@code action} for the listeners registered when the dispatch started.
+     */
+    @SuppressWarnings("unchecked")
+    void forEach(@NonNull Consumer<? super T> action) {
+        Object[] current = snapshot;
+        for (Object listener : current) {
+            action.accept((T) listener);
+        }
+    }
+}
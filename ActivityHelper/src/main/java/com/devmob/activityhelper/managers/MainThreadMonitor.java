@@ -0,0 +1,219 @@
+package com.devmob.activityhelper.managers;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Opt-in timing of the main thread work done by the library: fragment commits, back stack
+ * resolution, apply() calls and keyboard detection. Each task goes into a fixed-size
+ * histogram of its operation, tasks longer than the frame budget are counted and reported.
+ * <p>
+ * Disabled, a task costs one static read. Enabled, two {@link System#nanoTime()} calls and
+ * a few array increments, nothing is allocated, so it can stay on in release builds.
+ * Main thread only.
+ */
+public final class MainThreadMonitor {
+
+    public static final int OP_COMMIT = 0;
+    public static final int OP_BACK_STACK = 1;
+    public static final int OP_APPLY = 2;
+    public static final int OP_KEYBOARD = 3;
+    private static final int OP_COUNT = 4;
+    private static final String[] OP_NAMES = {"commit", "back stack", "apply", "keyboard"};
+
+    // Bucket i holds tasks shorter than 0.25ms * 2^i, the last one everything above 64ms
+    private static final int BUCKET_COUNT = 10;
+    private static final long FIRST_BUCKET_NANOS = 250_000;
+    private static final long DEFAULT_FRAME_BUDGET = 16;
+
+    private static MainThreadMonitor instance;
+
+    private final long[][] histograms = new long[OP_COUNT][BUCKET_COUNT];
+    private final long[] counts = new long[OP_COUNT];
+    private final long[] totalNanos = new long[OP_COUNT];
+    private final long[] maxNanos = new long[OP_COUNT];
+    private final long[] overBudget = new long[OP_COUNT];
+    private long budgetNanos = DEFAULT_FRAME_BUDGET * 1_000_000;
+    private OverBudgetListener listener = null;
+
+    private MainThreadMonitor() {
+    }
+
+    // ENTRY POINT
+    public static MainThreadMonitor enable() {
+        if (instance == null) {
+            instance = new MainThreadMonitor();
+        }
+        return instance;
+    }
+
+    public static void disable() {
+        instance = null;
+    }
+
+    /**
+     * The enabled monitor, null when disabled.
+     */
+    @Nullable
+    public static MainThreadMonitor get() {
+        return instance;
+    }
+
+    // ---- Task timing, used by the library components ----
+
+    /**
+     * @return the start of a task, 0 when the monitor is disabled
+     */
+    public static long begin() {
+        return instance != null ? System.nanoTime() : 0;
+    }
+
+    public static void end(int op, long start) {
+        MainThreadMonitor monitor = instance;
+        if (start == 0 || monitor == null) return;
+        monitor.record(op, System.nanoTime() - start);
+    }
+
+    // ---- Fluent setters ----
+
+    /**
+     * Tasks longer than {@code millis} are counted as over budget and reported.
+     */
+    public MainThreadMonitor setFrameBudget(long millis) {
+        this.budgetNanos = millis * 1_000_000;
+        return this;
+    }
+
+    public MainThreadMonitor setOverBudgetListener(@Nullable OverBudgetListener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    // ---- Aggregates ----
+
+    @NonNull
+    public Stats getStats(int op) {
+        return new Stats(op, counts[op], totalNanos[op], maxNanos[op], overBudget[op], histograms[op].clone());
+    }
+
+    /**
+     * Upper bound of each histogram bucket in milliseconds, the last bucket has none.
+     */
+    @NonNull
+    public static float[] getBucketBoundsMillis() {
+        float[] bounds = new float[BUCKET_COUNT - 1];
+        for (int i = 0; i < bounds.length; i++) bounds[i] = (FIRST_BUCKET_NANOS << i) / 1_000_000f;
+        return bounds;
+    }
+
+    public void reset() {
+        for (long[] histogram : histograms) Arrays.fill(histogram, 0);
+        Arrays.fill(counts, 0);
+        Arrays.fill(totalNanos, 0);
+        Arrays.fill(maxNanos, 0);
+        Arrays.fill(overBudget, 0);
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("MainThreadMonitor");
+        for (int op = 0; op < OP_COUNT; op++) builder.append("\n  ").append(getStats(op));
+        return builder.toString();
+    }
+
+    // ---- Internal ----
+
+    private void record(int op, long nanos) {
+        counts[op]++;
+        totalNanos[op] += nanos;
+        if (nanos > maxNanos[op]) maxNanos[op] = nanos;
+        histograms[op][bucketOf(nanos)]++;
+
+        if (nanos > budgetNanos) {
+            overBudget[op]++;
+            if (listener != null) listener.onOverBudget(op, nanos);
+        }
+    }
+
+    private static int bucketOf(long nanos) {
+        long units = nanos / FIRST_BUCKET_NANOS;
+        int bucket = 64 - Long.numberOfLeadingZeros(units);
+        return Math.min(bucket, BUCKET_COUNT - 1);
+    }
+
+    public static String nameOf(int op) {
+        return OP_NAMES[op];
+    }
+
+    public interface OverBudgetListener {
+        void onOverBudget(int op, long nanos);
+    }
+
+    /**
+     * Aggregates of one operation since the monitor was enabled or reset.
+     */
+    public static final class Stats {
+        public final int op;
+        public final long count;
+        public final long overBudget;
+        private final long totalNanos;
+        private final long maxNanos;
+        private final long[] histogram;
+
+        Stats(int op, long count, long totalNanos, long maxNanos, long overBudget, long[] histogram) {
+            this.op = op;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+            this.overBudget = overBudget;
+            this.histogram = histogram;
+        }
+
+        public float getTotalMillis() {
+            return totalNanos / 1_000_000f;
+        }
+
+        public float getAverageMillis() {
+            return count > 0 ? totalNanos / (count * 1_000_000f) : 0f;
+        }
+
+        public float getMaxMillis() {
+            return maxNanos / 1_000_000f;
+        }
+
+        /**
+         * Task count per bucket, see {@link #getBucketBoundsMillis()}.
+         */
+        @NonNull
+        public long[] getHistogram() {
+            return histogram.clone();
+        }
+
+        /**
+         * Upper bound of the bucket holding the {@code percentile} (0-100) task, in
+         * milliseconds; the max for the last bucket.
+         */
+        public float getPercentileMillis(float percentile) {
+            if (count == 0) return 0f;
+            long rank = (long) Math.ceil(count * percentile / 100f);
+            long seen = 0;
+            for (int i = 0; i < histogram.length - 1; i++) {
+                seen += histogram[i];
+                if (seen >= rank) return Math.min((FIRST_BUCKET_NANOS << i) / 1_000_000f, getMaxMillis());
+            }
+            return getMaxMillis();
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return String.format(Locale.US, "%s: %d tasks, %.1fms total, avg %.2fms, p95 %.2fms, max %.2fms, %d over budget",
+                    nameOf(op), count, getTotalMillis(), getAverageMillis(), getPercentileMillis(95f),
+                    getMaxMillis(), overBudget);
+        }
+    }
+}
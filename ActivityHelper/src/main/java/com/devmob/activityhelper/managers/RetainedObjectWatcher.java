@@ -0,0 +1,351 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Activity;
+import android.app.Application;
+import android.app.Dialog;
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.annotation.WorkerThread;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
+import androidx.fragment.app.FragmentManager;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Opt-in debug watcher for the Activities, Fragments and Dialogs referenced by library
+ * components. Each one is held weakly together with the components that took a reference
+ * to it; when it is still reachable some time after being destroyed it is reported with
+ * those components.
+ * <p>
+ * Nothing is tracked until {@link #install} is called, install it in debug builds only.
+ * Watched objects are recorded on the main thread and may be checked from any thread.
+ */
+public final class RetainedObjectWatcher {
+
+    private static final String TAG = "ActivityHelper";
+    private static final long DEFAULT_RETAIN_DELAY = 5000;
+
+    private static RetainedObjectWatcher instance;
+
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final ReferenceQueue<Object> queue = new ReferenceQueue<>();
+    private final List<WatchedReference> watched = new ArrayList<>();
+    private final List<Listener> listeners = new ArrayList<>();
+    private long retainDelay = DEFAULT_RETAIN_DELAY;
+
+    private final Runnable check = this::check;
+
+    private final FragmentManager.FragmentLifecycleCallbacks fragmentCallbacks = new FragmentManager.FragmentLifecycleCallbacks() {
+        @Override
+        public void onFragmentDestroyed(@NonNull FragmentManager fm, @NonNull Fragment f) {
+            onDestroyed(f);
+        }
+    };
+
+    private RetainedObjectWatcher(Application application) {
+        application.registerActivityLifecycleCallbacks(new Application.ActivityLifecycleCallbacks() {
+            @Override
+            public void onActivityCreated(@NonNull Activity activity, @Nullable Bundle savedInstanceState) {
+                if (activity instanceof FragmentActivity) {
+                    ((FragmentActivity) activity).getSupportFragmentManager()
+                            .registerFragmentLifecycleCallbacks(fragmentCallbacks, true);
+                }
+            }
+
+            @Override
+            public void onActivityStarted(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivityResumed(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivityPaused(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivityStopped(@NonNull Activity activity) {
+            }
+
+            @Override
+            public void onActivitySaveInstanceState(@NonNull Activity activity, @NonNull Bundle outState) {
+            }
+
+            @Override
+            public void onActivityDestroyed(@NonNull Activity activity) {
+                onDestroyed(activity);
+            }
+        });
+    }
+
+    // ENTRY POINT
+    public static RetainedObjectWatcher install(@NonNull Application application) {
+        if (instance == null) {
+            instance = new RetainedObjectWatcher(application);
+        }
+        return instance;
+    }
+
+    /**
+     * The installed watcher, null when not installed.
+     */
+    @Nullable
+    public static RetainedObjectWatcher get() {
+        return instance;
+    }
+
+    /**
+     * Records that {@code holder} references {@code target}. No-op unless installed.
+     */
+    public static void watch(@Nullable Object target, @NonNull String holder) {
+        if (instance == null || target == null) return;
+        instance.add(target, holder);
+    }
+
+    /**
+     * Records that {@code holder} dropped its reference to {@code target}.
+     */
+    public static void release(@Nullable Object target, @NonNull String holder) {
+        if (instance == null || target == null) return;
+        instance.remove(target, holder);
+    }
+
+    // ---- Fluent setters ----
+
+    /**
+     * Time a destroyed object gets to become unreachable before it is reported.
+     */
+    public RetainedObjectWatcher setRetainDelay(long millis) {
+        this.retainDelay = millis;
+        return this;
+    }
+
+    public void addListener(Listener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    // ---- Checks ----
+
+    /**
+     * Runs the GC and returns every destroyed object still reachable, whatever its age.
+     * Blocks for a moment, meant for instrumented tests and debug screens.
+     *
+     * @throws IllegalStateException when called on the main thread
+     */
+    @WorkerThread
+    @NonNull
+    public List<Retained> checkNow() {
+        if (Looper.myLooper() == Looper.getMainLooper()) {
+            throw new IllegalStateException("checkNow() blocks, call it off the main thread");
+        }
+        runGc(true);
+        synchronized (this) {
+            removeCleared();
+            return collectRetained(0);
+        }
+    }
+
+    /**
+     * Destroyed objects still reachable after the retain delay, as of the last check.
+     */
+    @NonNull
+    public synchronized List<Retained> getRetained() {
+        removeCleared();
+        return collectRetained(retainDelay);
+    }
+
+    public synchronized int getWatchedCount() {
+        removeCleared();
+        return watched.size();
+    }
+
+    // ---- Internal ----
+
+    private synchronized void add(Object target, String holder) {
+        removeCleared();
+        WatchedReference reference = find(target);
+        if (reference == null) {
+            reference = new WatchedReference(target, queue, describe(target));
+            watched.add(reference);
+        }
+        reference.holders.add(holder);
+    }
+
+    private synchronized void remove(Object target, String holder) {
+        WatchedReference reference = find(target);
+        if (reference != null) reference.holders.remove(holder);
+    }
+
+    @Nullable
+    private WatchedReference find(Object target) {
+        for (int i = 0; i < watched.size(); i++) {
+            WatchedReference reference = watched.get(i);
+            if (reference.get() == target) return reference;
+        }
+        return null;
+    }
+
+    private synchronized void onDestroyed(Object target) {
+        long now = SystemClock.uptimeMillis();
+        boolean any = false;
+        for (int i = 0; i < watched.size(); i++) {
+            WatchedReference reference = watched.get(i);
+            Object referent = reference.get();
+            if (referent == null || reference.destroyedAt != 0) continue;
+
+            // Dialogs go with the activity they were created in
+            if (referent == target || (referent instanceof Dialog && target instanceof Activity
+                    && findActivity(((Dialog) referent).getContext()) == target)) {
+                reference.destroyedAt = now;
+                any = true;
+            }
+        }
+        if (any) {
+            handler.removeCallbacks(check);
+            handler.postDelayed(check, retainDelay);
+        }
+    }
+
+    private void check() {
+        runGc(false);
+        List<Retained> retained = new ArrayList<>();
+        boolean pending = false;
+        synchronized (this) {
+            removeCleared();
+            for (Retained item : collectRetained(retainDelay)) {
+                if (item.reported) continue;
+                item.reference.reported = true;
+                retained.add(item);
+            }
+            // Objects destroyed later than the others are checked on their own schedule
+            for (int i = 0; i < watched.size(); i++) {
+                WatchedReference reference = watched.get(i);
+                if (reference.destroyedAt != 0 && !reference.reported) {
+                    pending = true;
+                    break;
+                }
+            }
+        }
+        for (Retained item : retained) {
+            Log.w(TAG, "Retained after destroy: " + item);
+            for (Listener listener : new ArrayList<>(listeners)) {
+                listener.onRetained(item);
+            }
+        }
+        if (pending) handler.postDelayed(check, retainDelay);
+    }
+
+    private List<Retained> collectRetained(long minAge) {
+        long now = SystemClock.uptimeMillis();
+        List<Retained> retained = new ArrayList<>();
+        for (int i = 0; i < watched.size(); i++) {
+            WatchedReference reference = watched.get(i);
+            if (reference.destroyedAt == 0 || reference.get() == null) continue;
+            long age = now - reference.destroyedAt;
+            if (age >= minAge) retained.add(new Retained(reference, age));
+        }
+        return retained;
+    }
+
+    private void removeCleared() {
+        Reference<?> cleared;
+        while ((cleared = queue.poll()) != null) {
+            watched.remove(cleared);
+        }
+        // Released by every holder and never destroyed: nothing left to watch
+        Iterator<WatchedReference> iterator = watched.iterator();
+        while (iterator.hasNext()) {
+            WatchedReference reference = iterator.next();
+            if (reference.holders.isEmpty() && reference.destroyedAt == 0) iterator.remove();
+        }
+    }
+
+    private static void runGc(boolean wait) {
+        Runtime.getRuntime().gc();
+        if (wait) {
+            // Gives the GC time to enqueue the cleared references
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        System.runFinalization();
+    }
+
+    @Nullable
+    private static Activity findActivity(Context context) {
+        while (context instanceof ContextWrapper) {
+            if (context instanceof Activity) return (Activity) context;
+            context = ((ContextWrapper) context).getBaseContext();
+        }
+        return null;
+    }
+
+    private static String describe(Object target) {
+        return target.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(target));
+    }
+
+    public interface Listener {
+        void onRetained(@NonNull Retained retained);
+    }
+
+    /**
+     * A destroyed object that is still reachable.
+     */
+    public static final class Retained {
+        private final WatchedReference reference;
+        public final String description;
+        public final List<String> holders;
+        public final long retainedMillis;
+        final boolean reported;
+
+        Retained(WatchedReference reference, long retainedMillis) {
+            this.reference = reference;
+            this.description = reference.description;
+            this.holders = Collections.unmodifiableList(new ArrayList<>(reference.holders));
+            this.retainedMillis = retainedMillis;
+            this.reported = reference.reported;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return description + " for " + retainedMillis + "ms, referenced by " + holders;
+        }
+    }
+
+    private static final class WatchedReference extends WeakReference<Object> {
+        final String description;
+        final Set<String> holders = new LinkedHashSet<>();
+        long destroyedAt = 0;
+        boolean reported = false;
+
+        WatchedReference(Object referent, ReferenceQueue<Object> queue, String description) {
+            super(referent, queue);
+            this.description = description;
+        }
+    }
+}
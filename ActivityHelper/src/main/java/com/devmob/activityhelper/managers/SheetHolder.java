@@ -0,0 +1,181 @@
+package com.devmob.activityhelper.managers;
+
+import android.view.Choreographer;
+import android.view.View;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import com.devmob.activityhelper.R;
+import com.google.android.material.bottomsheet.BottomSheetBehavior;
+import com.google.android.material.bottomsheet.BottomSheetDialog;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sheet view and behavior of a {@link BottomSheetDialog}, looked up once and kept on
+ * the dialog's decor view. Also owns the single BottomSheetCallback of the sheet and
+ * forwards its events to subscribers at most once per frame.
+ */
+final class SheetHolder extends BottomSheetBehavior.BottomSheetCallback implements Choreographer.FrameCallback {
+
+    final View sheet;
+    final BottomSheetBehavior<View> behavior;
+    private final View contentView;
+    private SheetSizer sizer;
+
+    private final List<BottomSheetManager.StateListener> stateListeners = new ArrayList<>();
+    private final List<BottomSheetManager.SlideListener> slideListeners = new ArrayList<>();
+    private boolean callbackRegistered = false;
+
+    // Latest values received during the current frame
+    private int pendingState;
+    private float pendingOffset;
+    private boolean stateChanged = false;
+    private boolean slid = false;
+    private boolean frameScheduled = false;
+
+    private int dispatchedState = -1;
+    private int eventCount = 0;
+    private int dispatchCount = 0;
+
+    private SheetHolder(View sheet, View contentView) {
+        this.sheet = sheet;
+        this.behavior = BottomSheetBehavior.from(sheet);
+        this.contentView = contentView;
+    }
+
+    /**
+     * @return null while Material's container is not created yet
+     */
+    @Nullable
+    static SheetHolder of(@NonNull BottomSheetDialog dialog) {
+        Window window = dialog.getWindow();
+        if (window == null) return null;
+
+        View decorView = window.getDecorView();
+        Object tag = decorView.getTag(R.id.activity_helper_bottom_sheet);
+        if (tag instanceof SheetHolder) return (SheetHolder) tag;
+
+        View sheet = dialog.findViewById(com.google.android.material.R.id.design_bottom_sheet);
+        if (sheet == null) return null;
+
+        SheetHolder holder = new SheetHolder(sheet, decorView.findViewById(android.R.id.content));
+        decorView.setTag(R.id.activity_helper_bottom_sheet, holder);
+        return holder;
+    }
+
+    /**
+     * Dynamic height of the sheet, created on first use.
+     */
+    SheetSizer getSizer() {
+        if (sizer == null) sizer = new SheetSizer(this, contentView != null ? contentView : sheet.getRootView());
+        return sizer;
+    }
+
+    void detachSizer() {
+        if (sizer != null) sizer.detach();
+    }
+
+    // ---- Subscriptions ----
+
+    void addStateListener(BottomSheetManager.StateListener listener) {
+        if (!stateListeners.contains(listener)) stateListeners.add(listener);
+        registerCallback();
+    }
+
+    void addSlideListener(BottomSheetManager.SlideListener listener) {
+        if (!slideListeners.contains(listener)) slideListeners.add(listener);
+        registerCallback();
+    }
+
+    void removeStateListener(BottomSheetManager.StateListener listener) {
+        stateListeners.remove(listener);
+    }
+
+    void removeSlideListener(BottomSheetManager.SlideListener listener) {
+        slideListeners.remove(listener);
+    }
+
+    void clearListeners() {
+        stateListeners.clear();
+        slideListeners.clear();
+        if (frameScheduled) {
+            frameScheduled = false;
+            Choreographer.getInstance().removeFrameCallback(this);
+        }
+        stateChanged = false;
+        slid = false;
+        dispatchedState = -1;
+    }
+
+    private void registerCallback() {
+        if (callbackRegistered) return;
+        callbackRegistered = true;
+        behavior.addBottomSheetCallback(this);
+    }
+
+    /**
+     * Callback events received / frames that dispatched them.
+     */
+    int getEventCount() {
+        return eventCount;
+    }
+
+    int getDispatchCount() {
+        return dispatchCount;
+    }
+
+    // ---- BottomSheetCallback ----
+
+    @Override
+    public void onStateChanged(@NonNull View bottomSheet, int newState) {
+        if (stateListeners.isEmpty()) return;
+        eventCount++;
+        pendingState = newState;
+        stateChanged = true;
+        scheduleFrame();
+    }
+
+    @Override
+    public void onSlide(@NonNull View bottomSheet, float slideOffset) {
+        if (slideListeners.isEmpty()) return;
+        eventCount++;
+        pendingOffset = slideOffset;
+        slid = true;
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (frameScheduled) return;
+        frameScheduled = true;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        frameScheduled = false;
+        dispatchCount++;
+
+        if (slid) {
+            slid = false;
+            float offset = pendingOffset;
+            for (int i = 0; i < slideListeners.size(); i++) {
+                slideListeners.get(i).onSlide(offset);
+            }
+        }
+        // Only the last state of the frame, and only if it differs from the last one sent
+        if (stateChanged) {
+            stateChanged = false;
+            int state = pendingState;
+            if (state != dispatchedState) {
+                dispatchedState = state;
+                for (int i = 0; i < stateListeners.size(); i++) {
+                    stateListeners.get(i).onStateChanged(state);
+                }
+            }
+        }
+    }
+}
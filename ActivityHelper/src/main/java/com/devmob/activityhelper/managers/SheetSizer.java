@@ -0,0 +1,134 @@
+package com.devmob.activityhelper.managers;
+
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.core.graphics.Insets;
+import androidx.core.view.WindowInsetsCompat;
+
+/**
+ * Keeps a sheet's max and peek height at a fraction of the height left in its dialog
+ * once system bars and the keyboard are removed. The sheet is only laid out again
+ * when one of the computed values changes.
+ */
+final class SheetSizer implements View.OnLayoutChangeListener {
+
+    private static final int UNSET = -1;
+
+    private final SheetHolder holder;
+    private final View contentView;
+    private boolean attached = false;
+
+    private float maxFraction = UNSET;
+    private float peekFraction = UNSET;
+    private boolean fitContent = false;
+
+    private int insetsHeight = 0;
+    private int appliedMax = UNSET;
+    private int appliedPeek = UNSET;
+
+    private int relayoutCount = 0;
+    private int skipCount = 0;
+
+    private final Runnable update = this::update;
+
+    private final InsetsDispatcher.Listener insetsListener = (v, insets) -> {
+        Insets bars = insets.getInsets(WindowInsetsCompat.Type.systemBars() | WindowInsetsCompat.Type.ime());
+        int height = bars.top + bars.bottom;
+        if (height != insetsHeight) {
+            insetsHeight = height;
+            update();
+        }
+        return insets;
+    };
+
+    SheetSizer(SheetHolder holder, View contentView) {
+        this.holder = holder;
+        this.contentView = contentView;
+    }
+
+    /**
+     * @param maxFraction  max height as a fraction of the available height, or -1
+     * @param peekFraction peek height as a fraction of the available height, or -1
+     * @param fitContent   wrap the content up to the max height instead of always using it
+     */
+    void configure(float maxFraction, float peekFraction, boolean fitContent) {
+        boolean fitChanged = fitContent != this.fitContent;
+        this.maxFraction = maxFraction;
+        this.peekFraction = peekFraction;
+        this.fitContent = fitContent;
+
+        if (fitChanged) appliedMax = UNSET;
+        if (!attached) {
+            attached = true;
+            contentView.addOnLayoutChangeListener(this);
+            InsetsDispatcher.of(contentView).setListener(this, InsetsDispatcher.PRIORITY_HIGH, insetsListener);
+        }
+        update();
+    }
+
+    void detach() {
+        if (!attached) return;
+        attached = false;
+        contentView.removeOnLayoutChangeListener(this);
+        contentView.removeCallbacks(update);
+        InsetsDispatcher.of(contentView).removeListener(this);
+        appliedMax = UNSET;
+        appliedPeek = UNSET;
+    }
+
+    int getRelayoutCount() {
+        return relayoutCount;
+    }
+
+    int getSkipCount() {
+        return skipCount;
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                               int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        if (bottom - top != oldBottom - oldTop) {
+            // Resizing the sheet from inside a layout pass would request another one right away
+            contentView.removeCallbacks(update);
+            contentView.post(update);
+        }
+    }
+
+    private void update() {
+        int height = contentView.getHeight();
+        if (height == 0) return;
+        int available = Math.max(0, height - insetsHeight);
+
+        int max = maxFraction > 0 ? Math.round(available * maxFraction) : UNSET;
+        int peek = peekFraction > 0 ? Math.round(available * peekFraction) : UNSET;
+        boolean changed = false;
+
+        if (max != UNSET && max != appliedMax) {
+            appliedMax = max;
+            changed = true;
+
+            ViewGroup.LayoutParams params = holder.sheet.getLayoutParams();
+            int sheetHeight = fitContent ? ViewGroup.LayoutParams.WRAP_CONTENT : max;
+            if (fitContent) holder.behavior.setMaxHeight(max);
+            if (params.height != sheetHeight) {
+                params.height = sheetHeight;
+                holder.sheet.setLayoutParams(params);
+            } else if (fitContent) {
+                holder.sheet.requestLayout();
+            }
+        }
+
+        if (peek != UNSET && peek != appliedPeek) {
+            appliedPeek = peek;
+            changed = true;
+            if (holder.behavior.getPeekHeight() != peek) holder.behavior.setPeekHeight(peek);
+        }
+
+        if (changed) {
+            relayoutCount++;
+        } else {
+            skipCount++;
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Activity;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Rect;
+import android.os.Build;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.PixelCopy;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.Window;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.core.view.WindowInsetsCompat;
+
+import com.devmob.activityhelper.R;
+
+/**
+ * Picks light or dark status bar icons from the content drawn under the status bar.
+ * <p>
+ * The strip under the status bar is copied into a tiny bitmap, at most once per
+ * {@link #setMinInterval interval} while scrolling and once more when scrolling settles.
+ * The icon appearance only flips when the average luminance leaves the hysteresis band.
+ */
+public final class StatusBarContrast {
+
+    private static final int SAMPLE_WIDTH = 32;
+    private static final int SAMPLE_HEIGHT = 4;
+
+    private static final long DEFAULT_MIN_INTERVAL = 250;
+    private static final long DEFAULT_SETTLE_DELAY = 120;
+    private static final float DEFAULT_LIGHT_THRESHOLD = 0.6f;
+    private static final float DEFAULT_DARK_THRESHOLD = 0.4f;
+
+    private final Window window;
+    private final View decorView;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final Bitmap sample = Bitmap.createBitmap(SAMPLE_WIDTH, SAMPLE_HEIGHT, Bitmap.Config.ARGB_8888);
+    private final int[] pixels = new int[SAMPLE_WIDTH * SAMPLE_HEIGHT];
+    private final Rect sourceRect = new Rect();
+    private final WindowState target = new WindowState();
+
+    private long minInterval = DEFAULT_MIN_INTERVAL;
+    private long settleDelay = DEFAULT_SETTLE_DELAY;
+    private float lightThreshold = DEFAULT_LIGHT_THRESHOLD;
+    private float darkThreshold = DEFAULT_DARK_THRESHOLD;
+
+    private int statusBarHeight = 0;
+    private boolean attached = false;
+    private boolean copyInFlight = false;
+    // A settle sample came while a copy was in flight, it runs once the copy is done
+    private boolean settlePending = false;
+    private long lastSampleTime = 0;
+    private float lastLuminance = -1f;
+
+    // Stats
+    private int sampleCount = 0;
+    private int throttledCount = 0;
+    private int appearanceChanges = 0;
+    private long totalSampleNanos = 0;
+    private long maxSampleNanos = 0;
+
+    private final Runnable settleSample = () -> {
+        if (copyInFlight) {
+            settlePending = true;
+        } else {
+            sample();
+        }
+    };
+
+    private final ViewTreeObserver.OnScrollChangedListener scrollListener = () -> {
+        handler.removeCallbacks(settleSample);
+        handler.postDelayed(settleSample, settleDelay);
+
+        if (SystemClock.uptimeMillis() - lastSampleTime >= minInterval) {
+            sample();
+        } else {
+            throttledCount++;
+        }
+    };
+
+    private final InsetsDispatcher.Listener insetsListener = (v, insets) -> {
+        int height = insets.getInsets(WindowInsetsCompat.Type.statusBars()).top;
+        if (height != statusBarHeight) {
+            statusBarHeight = height;
+            requestSample();
+        }
+        return insets;
+    };
+
+    private StatusBarContrast(Window window) {
+        this.window = window;
+        this.decorView = window.getDecorView();
+    }
+
+    // ENTRY POINT
+    public static StatusBarContrast attach(@NonNull Activity activity) {
+        Window window = activity.getWindow();
+        View decorView = window.getDecorView();
+
+        Object tag = decorView.getTag(R.id.activity_helper_status_bar_contrast);
+        StatusBarContrast contrast;
+        if (tag instanceof StatusBarContrast) {
+            contrast = (StatusBarContrast) tag;
+        } else {
+            contrast = new StatusBarContrast(window);
+            decorView.setTag(R.id.activity_helper_status_bar_contrast, contrast);
+        }
+
+        if (!contrast.attached) {
+            contrast.attached = true;
+            decorView.getViewTreeObserver().addOnScrollChangedListener(contrast.scrollListener);
+            InsetsDispatcher.of(activity).setListener(contrast, InsetsDispatcher.PRIORITY_LOW, contrast.insetsListener);
+        }
+        return contrast;
+    }
+
+    @Nullable
+    public static StatusBarContrast get(@NonNull Activity activity) {
+        Object tag = activity.getWindow().getDecorView().getTag(R.id.activity_helper_status_bar_contrast);
+        return tag instanceof StatusBarContrast ? (StatusBarContrast) tag : null;
+    }
+
+    public void detach() {
+        if (!attached) return;
+        attached = false;
+        settlePending = false;
+        handler.removeCallbacks(settleSample);
+        decorView.getViewTreeObserver().removeOnScrollChangedListener(scrollListener);
+
+        View content = decorView.findViewById(android.R.id.content);
+        if (content != null) InsetsDispatcher.of(content).removeListener(this);
+    }
+
+    // ---- Fluent setters ----
+
+    /**
+     * Minimum time between two samples while scrolling.
+     */
+    public StatusBarContrast setMinInterval(long millis) {
+        this.minInterval = millis;
+        return this;
+    }
+
+    /**
+     * Time without scroll after which the final sample is taken.
+     */
+    public StatusBarContrast setSettleDelay(long millis) {
+        this.settleDelay = millis;
+        return this;
+    }
+
+    /**
+     * Dark icons above {@code light}, light icons below {@code dark}, unchanged in between.
+     *
+     * @throws IllegalArgumentException unless {@code 0 <= dark <= light <= 1}
+     */
+    public StatusBarContrast setThresholds(float dark, float light) {
+        if (!(dark >= 0f && dark <= light && light <= 1f)) {
+            throw new IllegalArgumentException("Thresholds must satisfy 0 <= dark <= light <= 1, got " + dark + ", " + light);
+        }
+        this.darkThreshold = dark;
+        this.lightThreshold = light;
+        return this;
+    }
+
+    /**
+     * Samples after the next frame, e.g. when content changed without scrolling.
+     */
+    public void requestSample() {
+        handler.removeCallbacks(settleSample);
+        handler.post(settleSample);
+    }
+
+    // ---- Sampling ----
+
+    private void sample() {
+        if (!attached || copyInFlight) return;
+        int width = decorView.getWidth();
+        if (width == 0 || statusBarHeight == 0) return;
+
+        lastSampleTime = SystemClock.uptimeMillis();
+        sourceRect.set(0, 0, width, statusBarHeight);
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            long start = System.nanoTime();
+            copyInFlight = true;
+            try {
+                PixelCopy.request(window, sourceRect, sample, result -> {
+                    copyInFlight = false;
+                    // Detached meanwhile: the window is no longer ours to change
+                    if (!attached) return;
+                    if (result == PixelCopy.SUCCESS) onSampled(start);
+                    // The copy may predate the content the skipped sample was for
+                    if (settlePending) {
+                        settlePending = false;
+                        handler.post(settleSample);
+                    }
+                }, handler);
+            } catch (IllegalArgumentException e) {
+                // Window without a surface yet
+                copyInFlight = false;
+            }
+        } else {
+            long start = System.nanoTime();
+            sample.eraseColor(0);
+            Canvas canvas = new Canvas(sample);
+            canvas.scale(SAMPLE_WIDTH / (float) width, SAMPLE_HEIGHT / (float) statusBarHeight);
+            canvas.clipRect(sourceRect);
+            decorView.draw(canvas);
+            onSampled(start);
+        }
+    }
+
+    private void onSampled(long startNanos) {
+        sample.getPixels(pixels, 0, SAMPLE_WIDTH, 0, 0, SAMPLE_WIDTH, SAMPLE_HEIGHT);
+
+        long sum = 0;
+        for (int pixel : pixels) {
+            // Rec. 709 weights, scaled by 10000
+            sum += 2126 * ((pixel >> 16) & 0xFF) + 7152 * ((pixel >> 8) & 0xFF) + 722 * (pixel & 0xFF);
+        }
+        float luminance = sum / (10000f * 255f * pixels.length);
+        lastLuminance = luminance;
+
+        long elapsed = System.nanoTime() - startNanos;
+        sampleCount++;
+        totalSampleNanos += elapsed;
+        if (elapsed > maxSampleNanos) maxSampleNanos = elapsed;
+
+        if (luminance >= lightThreshold) {
+            setLightStatusBar(true);
+        } else if (luminance <= darkThreshold) {
+            setLightStatusBar(false);
+        }
+    }
+
+    private void setLightStatusBar(boolean light) {
+        target.setFlag(WindowState.LIGHT_STATUS_BAR, light);
+        if (WindowStateApplier.apply(window, ActivityManager.appliedStateOf(window), target) != 0) {
+            appearanceChanges++;
+        }
+    }
+
+    // ---- Stats ----
+
+    public int getSampleCount() {
+        return sampleCount;
+    }
+
+    /**
+     * Scroll events that did not sample because of {@link #setMinInterval}.
+     */
+    public int getThrottledCount() {
+        return throttledCount;
+    }
+
+    public int getAppearanceChanges() {
+        return appearanceChanges;
+    }
+
+    /**
+     * Average time from sample request to computed luminance, in nanoseconds.
+     */
+    public long getAverageSampleNanos() {
+        return sampleCount == 0 ? 0 : totalSampleNanos / sampleCount;
+    }
+
+    public long getMaxSampleNanos() {
+        return maxSampleNanos;
+    }
+
+    /**
+     * Luminance of the last sample between 0 and 1, or -1 before the first one.
+     */
+    public float getLastLuminance() {
+        return lastLuminance;
+    }
+}
@@ -0,0 +1,68 @@
+package com.devmob.activityhelper.managers;
+
+import androidx.annotation.Nullable;
+
+/**
+ * What an {@link ActivityStyle.Builder} was given: attributes set directly, plus options
+ * (transparent bars, extend behind bars) that only become window attributes once resolved.
+ */
+final class StyleOptions {
+
+    static final int TRANSPARENT_STATUS_BAR = 1;
+    static final int TRANSPARENT_NAVIGATION_BAR = 1 << 1;
+    static final int EXTEND_BEHIND_STATUS_BAR = 1 << 2;
+    static final int EXTEND_BEHIND_NAVIGATION_BAR = 1 << 3;
+
+    // Color.TRANSPARENT
+    static final int TRANSPARENT = 0;
+
+    // Attributes set directly
+    final WindowState state = new WindowState();
+    private int options = 0;
+    private int optionFlags = 0;
+
+    void setOption(int option, boolean value) {
+        options |= option;
+        if (value) {
+            optionFlags |= option;
+        } else {
+            optionFlags &= ~option;
+        }
+    }
+
+    /**
+     * Writes the resolved attributes into {@code out}, replacing its content. Options set
+     * here override the ones of {@code base}.
+     */
+    void resolveInto(@Nullable WindowState base, WindowState out) {
+        if (base != null) {
+            out.set(base);
+        } else {
+            out.mask = 0;
+            out.flags = 0;
+        }
+
+        boolean fullscreen = state.has(WindowState.HIDE_SYSTEM_BARS)
+                && state.isFlagSet(WindowState.HIDE_SYSTEM_BARS);
+        boolean extendSet = (options & (EXTEND_BEHIND_STATUS_BAR | EXTEND_BEHIND_NAVIGATION_BAR)) != 0;
+        // Edge-to-edge unless both extend options were explicitly turned off
+        if (base == null || extendSet || fullscreen) {
+            boolean extend = !extendSet || fullscreen
+                    || isOptionOn(EXTEND_BEHIND_STATUS_BAR) || isOptionOn(EXTEND_BEHIND_NAVIGATION_BAR);
+            out.setFlag(WindowState.EDGE_TO_EDGE, extend);
+        }
+
+        if (!state.has(WindowState.STATUS_BAR_COLOR) && isOptionOn(TRANSPARENT_STATUS_BAR)) {
+            out.setStatusBarColor(TRANSPARENT);
+        }
+        if (!state.has(WindowState.NAVIGATION_BAR_COLOR) && isOptionOn(TRANSPARENT_NAVIGATION_BAR)) {
+            out.setNavigationBarColor(TRANSPARENT);
+        }
+
+        out.merge(state, state.mask);
+    }
+
+    private boolean isOptionOn(int option) {
+        return (options & optionFlags & option) != 0;
+    }
+}
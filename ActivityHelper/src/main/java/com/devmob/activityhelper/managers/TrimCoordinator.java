@@ -0,0 +1,232 @@
+package com.devmob.activityhelper.managers;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Single {@link ComponentCallbacks2} of the library. On memory pressure it asks the
+ * registered components to release state stage by stage, cheapest to rebuild first,
+ * and reports what each of them released.
+ * <ul>
+ *     <li>{@link #STAGE_CACHES} from {@code TRIM_MEMORY_RUNNING_LOW} in the foreground,
+ *     {@code TRIM_MEMORY_BACKGROUND} in the background: pre-warmed dialogs and other caches</li>
+ *     <li>{@link #STAGE_VIEWS} from {@code TRIM_MEMORY_RUNNING_CRITICAL} in the foreground,
+ *     {@code TRIM_MEMORY_MODERATE} in the background: views of hidden fragments</li>
+ * </ul>
+ * {@code TRIM_MEMORY_UI_HIDDEN} only tells the UI went away, it releases nothing.
+ */
+public final class TrimCoordinator implements ComponentCallbacks2 {
+
+    public static final int STAGE_CACHES = 0;
+    public static final int STAGE_VIEWS = 1;
+
+    // Foreground levels are below TRIM_MEMORY_UI_HIDDEN, background ones above it
+    private static final int[] FOREGROUND_MIN_LEVELS = {
+            TRIM_MEMORY_RUNNING_LOW,
+            TRIM_MEMORY_RUNNING_CRITICAL
+    };
+    private static final int[] BACKGROUND_MIN_LEVELS = {
+            TRIM_MEMORY_BACKGROUND,
+            TRIM_MEMORY_MODERATE
+    };
+
+    private static TrimCoordinator instance;
+
+    // Kept sorted by stage
+    private final List<Participant> participants = new ArrayList<>();
+    private final List<ReportListener> listeners = new ArrayList<>();
+    private Report lastReport;
+
+    private TrimCoordinator(Context context) {
+        context.getApplicationContext().registerComponentCallbacks(this);
+    }
+
+    // ENTRY POINT
+    public static TrimCoordinator getInstance(@NonNull Context context) {
+        if (instance == null) {
+            instance = new TrimCoordinator(context);
+        }
+        return instance;
+    }
+
+    // ---- Registration ----
+
+    /**
+     * Registers {@code trimmable} for {@code stage}, it must be {@link #unregister unregistered}
+     * when its owner goes away.
+     */
+    public void register(@NonNull String name, int stage, @NonNull Trimmable trimmable) {
+        unregister(trimmable);
+        int index = participants.size();
+        while (index > 0 && participants.get(index - 1).stage > stage) index--;
+        participants.add(index, new Participant(name, stage, trimmable));
+    }
+
+    public void unregister(@NonNull Trimmable trimmable) {
+        for (int i = participants.size() - 1; i >= 0; i--) {
+            if (participants.get(i).trimmable == trimmable) participants.remove(i);
+        }
+    }
+
+    public void addReportListener(ReportListener listener) {
+        if (!listeners.contains(listener)) listeners.add(listener);
+    }
+
+    public void removeReportListener(ReportListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * What was released on the last trim, null before the first one.
+     */
+    @Nullable
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    // ---- Trim ----
+
+    /**
+     * Runs every stage allowed at {@code level}, as the system would.
+     */
+    @NonNull
+    public Report trim(int level) {
+        Report report = new Report(level);
+        for (Participant participant : new ArrayList<>(participants)) {
+            if (!isDue(participant.stage, level)) continue;
+
+            Release release = new Release(participant.name, participant.stage);
+            participant.trimmable.onTrim(level, release);
+            report.releases.add(release);
+        }
+
+        lastReport = report;
+        for (ReportListener listener : new ArrayList<>(listeners)) {
+            listener.onTrimmed(report);
+        }
+        return report;
+    }
+
+    private static boolean isDue(int stage, int level) {
+        if (level == TRIM_MEMORY_UI_HIDDEN) return false;
+        int[] minLevels = level < TRIM_MEMORY_UI_HIDDEN ? FOREGROUND_MIN_LEVELS : BACKGROUND_MIN_LEVELS;
+        return level >= minLevels[stage];
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        trim(level);
+    }
+
+    @Override
+    public void onLowMemory() {
+        trim(TRIM_MEMORY_COMPLETE);
+    }
+
+    @Override
+    public void onConfigurationChanged(@NonNull Configuration newConfig) {
+    }
+
+    public interface Trimmable {
+        /**
+         * Releases what the component can rebuild and records it in {@code release}.
+         */
+        void onTrim(int level, @NonNull Release release);
+    }
+
+    public interface ReportListener {
+        void onTrimmed(@NonNull Report report);
+    }
+
+    /**
+     * What one component released.
+     */
+    public static final class Release {
+        public final String name;
+        public final int stage;
+        private int objects = 0;
+        private long bytes = 0;
+
+        Release(String name, int stage) {
+            this.name = name;
+            this.stage = stage;
+        }
+
+        public void addObjects(int count) {
+            objects += count;
+        }
+
+        /**
+         * For the components that know the size of what they released.
+         */
+        public void addBytes(long count) {
+            bytes += count;
+        }
+
+        public int getObjects() {
+            return objects;
+        }
+
+        public long getBytes() {
+            return bytes;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return name + ": " + objects + " objects" + (bytes > 0 ? ", " + bytes + " bytes" : "");
+        }
+    }
+
+    public static final class Report {
+        public final int level;
+        private final List<Release> releases = new ArrayList<>();
+
+        Report(int level) {
+            this.level = level;
+        }
+
+        @NonNull
+        public List<Release> getReleases() {
+            return Collections.unmodifiableList(releases);
+        }
+
+        public int getTotalObjects() {
+            int total = 0;
+            for (Release release : releases) total += release.objects;
+            return total;
+        }
+
+        public long getTotalBytes() {
+            long total = 0;
+            for (Release release : releases) total += release.bytes;
+            return total;
+        }
+
+        @NonNull
+        @Override
+        public String toString() {
+            return "Trim level " + level + " " + releases;
+        }
+    }
+
+    private static final class Participant {
+        final String name;
+        final int stage;
+        final Trimmable trimmable;
+
+        Participant(String name, int stage, Trimmable trimmable) {
+            this.name = name;
+            this.stage = stage;
+            this.trimmable = trimmable;
+        }
+    }
+}
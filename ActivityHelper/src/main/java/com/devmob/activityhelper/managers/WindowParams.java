@@ -0,0 +1,41 @@
+package com.devmob.activityhelper.managers;
+
+import android.view.Window;
+import android.view.WindowManager;
+
+/**
+ * Batches window attribute changes: edit a copy of the window's LayoutParams,
+ * then push it with a single {@link Window#setAttributes} call. Dim amount and soft
+ * input mode also go through their Window setters while the decor is not installed.
+ */
+final class WindowParams {
+
+    private WindowParams() {
+    }
+
+    static WindowManager.LayoutParams edit(Window window) {
+        WindowManager.LayoutParams params = new WindowManager.LayoutParams();
+        params.copyFrom(window.getAttributes());
+        return params;
+    }
+
+    /**
+     * @return false when {@code params} matched the window already and nothing was pushed
+     */
+    static boolean commit(Window window, WindowManager.LayoutParams params) {
+        WindowManager.LayoutParams current = new WindowManager.LayoutParams();
+        current.copyFrom(window.getAttributes());
+        // copyFrom() reports which fields differ
+        int changes = current.copyFrom(params);
+        if (changes == 0) return false;
+
+        // Before the decor is installed, the theme overwrites both unless they went through
+        // their setters; they dispatch nothing while the window is not attached
+        if (window.peekDecorView() == null) {
+            if ((changes & WindowManager.LayoutParams.DIM_AMOUNT_CHANGED) != 0) window.setDimAmount(params.dimAmount);
+            if ((changes & WindowManager.LayoutParams.SOFT_INPUT_MODE_CHANGED) != 0) window.setSoftInputMode(params.softInputMode);
+        }
+        window.setAttributes(params);
+        return true;
+    }
+}
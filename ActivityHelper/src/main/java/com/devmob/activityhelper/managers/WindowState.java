@@ -0,0 +1,105 @@
+package com.devmob.activityhelper.managers;
+
+/**
+ * Resolved window attributes. {@link #mask} tells which attributes are set,
+ * the boolean ones live as bits in {@link #flags}.
+ */
+final class WindowState {
+
+    static final int STATUS_BAR_COLOR = 1;
+    static final int NAVIGATION_BAR_COLOR = 1 << 1;
+    static final int LIGHT_STATUS_BAR = 1 << 2;
+    static final int LIGHT_NAVIGATION_BAR = 1 << 3;
+    static final int EDGE_TO_EDGE = 1 << 4;
+    static final int HIDE_SYSTEM_BARS = 1 << 5;
+    static final int SOFT_INPUT_MODE = 1 << 6;
+    static final int FITS_SYSTEM_WINDOWS = 1 << 7;
+
+    static final int BOOLEAN_ATTRIBUTES = LIGHT_STATUS_BAR | LIGHT_NAVIGATION_BAR
+            | EDGE_TO_EDGE | HIDE_SYSTEM_BARS | FITS_SYSTEM_WINDOWS;
+
+    int mask = 0;
+    int flags = 0;
+    int statusBarColor = 0;
+    int navigationBarColor = 0;
+    int softInputMode = 0;
+
+    WindowState() {
+    }
+
+    WindowState(WindowState other) {
+        set(other);
+    }
+
+    void set(WindowState other) {
+        mask = other.mask;
+        flags = other.flags;
+        statusBarColor = other.statusBarColor;
+        navigationBarColor = other.navigationBarColor;
+        softInputMode = other.softInputMode;
+    }
+
+    void setFlag(int attribute, boolean value) {
+        mask |= attribute;
+        if (value) {
+            flags |= attribute;
+        } else {
+            flags &= ~attribute;
+        }
+    }
+
+    void setStatusBarColor(int color) {
+        mask |= STATUS_BAR_COLOR;
+        statusBarColor = color;
+    }
+
+    void setNavigationBarColor(int color) {
+        mask |= NAVIGATION_BAR_COLOR;
+        navigationBarColor = color;
+    }
+
+    void setSoftInputMode(int mode) {
+        mask |= SOFT_INPUT_MODE;
+        softInputMode = mode;
+    }
+
+    boolean has(int attribute) {
+        return (mask & attribute) != 0;
+    }
+
+    boolean isFlagSet(int attribute) {
+        return (flags & attribute) != 0;
+    }
+
+    /**
+     * Attributes of {@code target} that are not set here or hold a different value.
+     */
+    int diff(WindowState target) {
+        int changed = target.mask & ~mask;
+        int common = target.mask & mask;
+
+        changed |= common & BOOLEAN_ATTRIBUTES & (target.flags ^ flags);
+        if ((common & STATUS_BAR_COLOR) != 0 && target.statusBarColor != statusBarColor) {
+            changed |= STATUS_BAR_COLOR;
+        }
+        if ((common & NAVIGATION_BAR_COLOR) != 0 && target.navigationBarColor != navigationBarColor) {
+            changed |= NAVIGATION_BAR_COLOR;
+        }
+        if ((common & SOFT_INPUT_MODE) != 0 && target.softInputMode != softInputMode) {
+            changed |= SOFT_INPUT_MODE;
+        }
+        return changed;
+    }
+
+    /**
+     * Copies the attributes in {@code attributes} from {@code source}.
+     */
+    void merge(WindowState source, int attributes) {
+        attributes &= source.mask;
+        mask |= attributes;
+        flags = (flags & ~attributes) | (source.flags & attributes);
+        if ((attributes & STATUS_BAR_COLOR) != 0) statusBarColor = source.statusBarColor;
+        if ((attributes & NAVIGATION_BAR_COLOR) != 0) navigationBarColor = source.navigationBarColor;
+        if ((attributes & SOFT_INPUT_MODE) != 0) softInputMode = source.softInputMode;
+    }
+}
@@ -0,0 +1,86 @@
+package com.devmob.activityhelper.managers;
+
+import android.view.View;
+import android.view.Window;
+
+import androidx.core.view.WindowCompat;
+import androidx.core.view.WindowInsetsCompat;
+import androidx.core.view.WindowInsetsControllerCompat;
+
+import static com.devmob.activityhelper.managers.WindowState.EDGE_TO_EDGE;
+import static com.devmob.activityhelper.managers.WindowState.FITS_SYSTEM_WINDOWS;
+import static com.devmob.activityhelper.managers.WindowState.HIDE_SYSTEM_BARS;
+import static com.devmob.activityhelper.managers.WindowState.LIGHT_NAVIGATION_BAR;
+import static com.devmob.activityhelper.managers.WindowState.LIGHT_STATUS_BAR;
+import static com.devmob.activityhelper.managers.WindowState.NAVIGATION_BAR_COLOR;
+import static com.devmob.activityhelper.managers.WindowState.SOFT_INPUT_MODE;
+import static com.devmob.activityhelper.managers.WindowState.STATUS_BAR_COLOR;
+
+/**
+ * Writes the attributes of a {@link WindowState} that differ from what was
+ * last applied to the window, all in one pass.
+ */
+final class WindowStateApplier {
+
+    private static final int CONTROLLER_ATTRIBUTES = LIGHT_STATUS_BAR | LIGHT_NAVIGATION_BAR | HIDE_SYSTEM_BARS;
+
+    // Attributes that can be written before the decor view exists
+    static final int WINDOW_ATTRIBUTES = STATUS_BAR_COLOR | NAVIGATION_BAR_COLOR | SOFT_INPUT_MODE;
+
+    private WindowStateApplier() {
+    }
+
+    /**
+     * @param applied what is currently on the window, updated in place
+     * @return the attributes that were written, 0 when nothing changed
+     */
+    static int apply(Window window, WindowState applied, WindowState target) {
+        return apply(window, applied, target, ~0);
+    }
+
+    /**
+     * Same as {@link #apply(Window, WindowState, WindowState)} limited to {@code attributes}.
+     * With {@link #WINDOW_ATTRIBUTES} the decor view is not touched.
+     */
+    @SuppressWarnings("deprecation") // Bar colors have no replacement below API 35
+    static int apply(Window window, WindowState applied, WindowState target, int attributes) {
+        int changed = applied.diff(target) & attributes;
+        if (changed == 0) return 0;
+
+        if ((changed & EDGE_TO_EDGE) != 0) {
+            WindowCompat.setDecorFitsSystemWindows(window, !target.isFlagSet(EDGE_TO_EDGE));
+        }
+        if ((changed & STATUS_BAR_COLOR) != 0) window.setStatusBarColor(target.statusBarColor);
+        if ((changed & NAVIGATION_BAR_COLOR) != 0) window.setNavigationBarColor(target.navigationBarColor);
+        if ((changed & SOFT_INPUT_MODE) != 0) window.setSoftInputMode(target.softInputMode);
+
+        if ((changed & FITS_SYSTEM_WINDOWS) != 0) {
+            View contentView = window.findViewById(android.R.id.content);
+            if (contentView != null) contentView.setFitsSystemWindows(target.isFlagSet(FITS_SYSTEM_WINDOWS));
+        }
+
+        if ((changed & CONTROLLER_ATTRIBUTES) != 0) {
+            WindowInsetsControllerCompat controller =
+                    WindowCompat.getInsetsController(window, window.getDecorView());
+
+            if ((changed & LIGHT_STATUS_BAR) != 0) {
+                controller.setAppearanceLightStatusBars(target.isFlagSet(LIGHT_STATUS_BAR));
+            }
+            if ((changed & LIGHT_NAVIGATION_BAR) != 0) {
+                controller.setAppearanceLightNavigationBars(target.isFlagSet(LIGHT_NAVIGATION_BAR));
+            }
+            if ((changed & HIDE_SYSTEM_BARS) != 0) {
+                if (target.isFlagSet(HIDE_SYSTEM_BARS)) {
+                    controller.setSystemBarsBehavior(
+                            WindowInsetsControllerCompat.BEHAVIOR_SHOW_TRANSIENT_BARS_BY_SWIPE);
+                    controller.hide(WindowInsetsCompat.Type.systemBars());
+                } else {
+                    controller.show(WindowInsetsCompat.Type.systemBars());
+                }
+            }
+        }
+
+        applied.merge(target, changed);
+        return changed;
+    }
+}
@@ -1,69 +1,219 @@
 package com.devmob.activityhelper.navigator;
 
 
+import android.content.Context;
+import android.content.ContextWrapper;
+import android.os.Bundle;
 import android.os.Handler;
 import android.os.Looper;
 import android.util.Log;
 import android.view.View;
 
+import androidx.activity.ComponentActivity;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.fragment.app.DialogFragment;
 import androidx.fragment.app.Fragment;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.DefaultLifecycleObserver;
 import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+import androidx.savedstate.SavedStateRegistry;
 
+import com.devmob.activityhelper.managers.DialogScheduler;
+import com.devmob.activityhelper.managers.IdleScheduler;
+import com.devmob.activityhelper.managers.MainThreadMonitor;
+import com.devmob.activityhelper.managers.RetainedObjectWatcher;
+import com.devmob.activityhelper.managers.TrimCoordinator;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class ActivityNavigator {
     private final FragmentManager fragmentManager;
     private final int containerId;
+    private final Context context;
     private final Handler handler = new Handler(Looper.getMainLooper());
+    private final CommitQueue commits = new CommitQueue(handler::post);
+    private final IdleScheduler idleScheduler = IdleScheduler.getInstance();
+    private final TrimCoordinator.Trimmable trimmable = this::trimHiddenViews;
+    private final TransitionEngine transitions = new TransitionEngine();
+    private final Runnable settle = this::settleBackStack;
+    // Survives configuration changes, shared with the navigator of the next activity instance
+    private final NavigatorStore.ActivityState state;
+    private TransitionListener transitionListener = null;
+    private boolean compactState = false;
 
     private boolean isTransitioning = false;
-    private boolean pendingCommit = false;
     private boolean isRestoring = false;
+    // The back stack change of a pop already resolved up front
+    private boolean popResolved = false;
 
     private static final long TRANSITION_DELAY = 300;
+    private static final long RESTORE_DEADLINE = 500;
+    private static final long CLEANUP_DEADLINE = 1000;
+    private static final long DEBUG_DEADLINE = 2000;
 
     public ActivityNavigator(FragmentManager fm, View view) {
         this.fragmentManager = fm;
         this.containerId = view.getId();
+        this.context = view.getContext();
 
-        isRestoring = !fm.getFragments().isEmpty();
+        ComponentActivity activity = findActivity();
+        this.state = activity != null
+                ? NavigatorStore.of(activity).activityState(containerId)
+                : new NavigatorStore.ActivityState();
+
+        // After a configuration change the previous navigator already knew if there is a stack
+        isRestoring = state.bound ? state.hasStack : !fm.getFragments().isEmpty();
+        state.bound = true;
         fragmentManager.addOnBackStackChangedListener(this::onBackStackChanged);
 
+        TrimCoordinator.getInstance(context).register("ActivityNavigator", TrimCoordinator.STAGE_VIEWS, trimmable);
+        RetainedObjectWatcher.watch(activity, "ActivityNavigator");
+        if (activity != null) {
+            activity.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+                @Override
+                public void onStart(@NonNull LifecycleOwner owner) {
+                    // Requests dropped while the state was saved
+                    replayPending();
+                }
+
+                @Override
+                public void onDestroy(@NonNull LifecycleOwner owner) {
+                    TrimCoordinator.getInstance(context).unregister(trimmable);
+                    idleScheduler.cancel(ActivityNavigator.this);
+                    transitions.release();
+                    // Queued commits go with this FragmentManager, their requests stay in the store
+                    handler.removeCallbacksAndMessages(null);
+                    commits.reset();
+                    for (NavigatorStore.OpenRequest request : state.pending) request.dropped = true;
+                    RetainedObjectWatcher.release(owner, "ActivityNavigator");
+                    if (state.stateStore != null && owner instanceof ComponentActivity
+                            && ((ComponentActivity) owner).isFinishing()) {
+                        state.stateStore.clear();
+                    }
+                }
+            });
+        }
+
         if (isRestoring) {
-            handler.postDelayed(() -> isRestoring = false, 500);
+            // Restoration is over once the main thread is idle again
+            idleScheduler.schedule(this, this::onRestored, 0, RESTORE_DEADLINE);
+        } else if (!state.pending.isEmpty()) {
+            handler.post(this::replayPending);
+        }
+    }
+
+    /**
+     * Transition used by {@link #openFragment} when {@code animate} is true, null for none.
+     */
+    public void setTransition(@Nullable TransitionSpec spec) {
+        state.transition = spec;
+    }
+
+    public void setTransitionListener(@Nullable TransitionListener listener) {
+        this.transitionListener = listener;
+    }
+
+    /**
+     * Frame timing of the last transition, null before the first one.
+     */
+    @Nullable
+    public TransitionStats getLastTransitionStats() {
+        return transitions.getLastStats();
+    }
+
+    /**
+     * Saves the stack as routes (class, tag, arguments) instead of the full FragmentManager
+     * state, which keeps the saved-state Bundle small with deep stacks. Large arguments are
+     * written to files. On restore only the top fragment gets a view, the others get theirs
+     * when shown again.
+     * <p>
+     * Configuration changes still go through the FragmentManager's own state. For the other
+     * saves (process death) it saves nothing: fragment saved state (views, onSaveInstanceState)
+     * and fragments outside the container are not restored then.
+     * Call it in onCreate, on every creation of the activity.
+     */
+    public void enableCompactState() {
+        ComponentActivity activity = findActivity();
+        if (activity == null || compactState) return;
+
+        compactState = true;
+        if (state.stateStore == null) state.stateStore = new NavigationStateStore(context);
+        NavigationStateStore stateStore = state.stateStore;
+        SavedStateRegistry registry = activity.getSavedStateRegistry();
+        String key = "ActivityHelper:navigator:" + containerId;
+        Bundle restored = registry.isRestored() ? registry.consumeRestoredStateForKey(key) : null;
+
+        SavedStateRegistry.SavedStateProvider fragmentsState =
+                registry.getSavedStateProvider(NavigationStateStore.FRAGMENTS_STATE_KEY);
+        registry.unregisterSavedStateProvider(NavigationStateStore.FRAGMENTS_STATE_KEY);
+        registry.registerSavedStateProvider(NavigationStateStore.FRAGMENTS_STATE_KEY, () ->
+                fragmentsState != null && keepsFragmentState(activity, stateStore)
+                        ? fragmentsState.saveState() : new Bundle());
+        registry.registerSavedStateProvider(key, () -> keepsFragmentState(activity, stateStore)
+                ? new Bundle() : stateStore.save(fragmentManager, containerId));
+
+        if (restored != null && fragmentManager.getFragments().isEmpty()) {
+            isRestoring = true;
+            // The stack may be replayed later, once spilled arguments are read from disk
+            boolean restoring = stateStore.restore(restored, fragmentManager, containerId, () -> {
+                state.hasStack = true;
+                idleScheduler.cancel(this);
+                idleScheduler.schedule(this, this::onRestored, 0, RESTORE_DEADLINE);
+            });
+            if (!restoring) onRestored();
         }
     }
 
+    // isChangingConfigurations() is already true when a relaunch saves the state. A stack
+    // still waiting for its spilled arguments is not in the FragmentManager yet.
+    private static boolean keepsFragmentState(ComponentActivity activity, NavigationStateStore stateStore) {
+        return activity.isChangingConfigurations() && !stateStore.isRestorePending();
+    }
+
+    /**
+     * Size of the last compact state saved, or time of the last restore from it. Null
+     * before either or when {@link #enableCompactState} was not called.
+     */
+    @Nullable
+    public NavigationStateReport getLastStateReport() {
+        return compactState ? state.stateStore.getLastReport() : null;
+    }
+
     public void openFragment(Fragment fragment, boolean addToBackStack, boolean animate) {
         // Don't handle during restoration
         if (isRestoring) return;
 
-        FragmentTransaction transaction = fragmentManager.beginTransaction();
+        // Kept until committed, replayed by the next navigator if the activity goes away first
+        NavigatorStore.OpenRequest request = new NavigatorStore.OpenRequest(fragment, addToBackStack, animate);
+        state.pending.add(request);
 
-//        if (animate) {
-//            transaction.setCustomAnimations(
-//                    R.anim.slide_in_right,
-//                    R.anim.slide_out_left,
-//                    R.anim.slide_in_left,
-//                    R.anim.slide_out_right
-//            );
-//        }
+        // A running transition jumps to its end state first
+        transitions.finish();
 
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
         transaction.setReorderingAllowed(true);
 
         String tag = fragment.getClass().getSimpleName();
         Fragment existingFragment = fragmentManager.findFragmentByTag(tag);
         Fragment targetFragment = (existingFragment == null) ? fragment : existingFragment;
+        TransitionSpec spec = animate ? state.transition : null;
+        Fragment exitingFragment = null;
 
         // Hide and pause all current fragments BEFORE adding/showing new one
         for (Fragment f : fragmentManager.getFragments()) {
             if (f.isAdded() && f.isVisible()) {
-                transaction.hide(f);
+                // The one animating out is hidden when its transition ends
+                if (spec != null && exitingFragment == null && f != targetFragment && f.getView() != null) {
+                    exitingFragment = f;
+                } else {
+                    transaction.hide(f);
+                }
                 // Move to STARTED state - this triggers onPause() but not onStop()
                 transaction.setMaxLifecycle(f, Lifecycle.State.STARTED);
             }
@@ -81,8 +231,53 @@ public class ActivityNavigator {
             transaction.addToBackStack(tag);
         }
 
-        safeCommit(transaction);
-        dismissAllDialogs();
+        // Low priority dialogs wait until the transaction ran, or its transition ended
+        DialogScheduler scheduler = findDialogScheduler();
+        if (scheduler != null) scheduler.onNavigationStarted();
+
+        if (spec != null) {
+            // Back stack handling waits for the transition instead of a fixed delay
+            transitions.expect();
+            Fragment exiting = exitingFragment;
+            safeCommit(transaction, request, () -> startTransition(spec, targetFragment, exiting, !addToBackStack));
+        } else {
+            safeCommit(transaction, request, null);
+        }
+        dismissAllDialogs(fragmentManager);
+    }
+
+    private void onRestored() {
+        isRestoring = false;
+        replayPending();
+    }
+
+    private void replayPending() {
+        if (isRestoring || fragmentManager.isStateSaved()) return;
+
+        List<NavigatorStore.OpenRequest> dropped = new ArrayList<>();
+        for (NavigatorStore.OpenRequest request : state.pending) {
+            if (request.dropped) dropped.add(request);
+        }
+        state.pending.removeAll(dropped);
+        for (NavigatorStore.OpenRequest request : dropped) {
+            openFragment(request.fragment, request.addToBackStack, request.animate);
+        }
+    }
+
+    private void startTransition(TransitionSpec spec, Fragment entering, @Nullable Fragment exiting, boolean hideExiting) {
+        View exitingView = exiting != null ? exiting.getView() : null;
+        transitions.start(spec, entering.getView(), exitingView, stats -> {
+            // Off the back stack nothing else hides the previous fragment
+            if (hideExiting && exiting != null && exiting.isAdded() && !exiting.isHidden()
+                    && !fragmentManager.isStateSaved()) {
+                fragmentManager.beginTransaction()
+                        .setReorderingAllowed(true)
+                        .hide(exiting)
+                        .commitAllowingStateLoss();
+            }
+            finishNavigation();
+            if (stats != null && transitionListener != null) transitionListener.onTransitionEnd(stats);
+        });
     }
 
     private void handleBackStackChange() {
@@ -107,7 +302,9 @@ public class ActivityNavigator {
                     if (f.isVisible()) {
                         transaction.hide(f);
                     }
-                    transaction.setMaxLifecycle(f, Lifecycle.State.STARTED);
+                    // Views dropped on memory pressure are only rebuilt when shown again
+                    boolean trimmed = f.isHidden() && f.getView() == null;
+                    transaction.setMaxLifecycle(f, trimmed ? Lifecycle.State.CREATED : Lifecycle.State.STARTED);
                 }
             }
 
@@ -118,7 +315,7 @@ public class ActivityNavigator {
             transaction.setMaxLifecycle(topFragment, Lifecycle.State.RESUMED);
 
             transaction.commitAllowingStateLoss();
-            debugFragments();
+            idleScheduler.schedule(this, this::debugFragments, 0, DEBUG_DEADLINE);
 
             removePoppedFragmentsAfterAnimation(fm);
         }
@@ -155,78 +352,138 @@ public class ActivityNavigator {
         Log.d("FragmentDebug", "===== FRAGMENT DEBUG END =====");
     }
 
-    private void safeCommit(Runnable commitAction) {
-        if (fragmentManager.isStateSaved()) return;
-
-        if (pendingCommit) {
-            handler.post(() -> safeCommit(commitAction));
+    // afterCommit, when set, finishes the navigation instead of the commit itself
+    private void safeCommit(FragmentTransaction transaction, NavigatorStore.OpenRequest request, @Nullable Runnable afterCommit) {
+        if (fragmentManager.isStateSaved()) {
+            request.dropped = true;
+            if (afterCommit != null) {
+                afterCommit.run();
+            } else {
+                finishNavigation();
+            }
             return;
         }
 
-        pendingCommit = true;
-
-        handler.post(() -> {
+        commits.enqueue(() -> {
+            long start = MainThreadMonitor.begin();
             try {
                 if (!fragmentManager.isStateSaved()) {
-                    commitAction.run();
+                    transaction.commitAllowingStateLoss();
+                    state.pending.remove(request);
+                    state.hasStack = true;
+                } else {
+                    request.dropped = true;
                 }
             } catch (Exception ignored) {}
+            MainThreadMonitor.end(MainThreadMonitor.OP_COMMIT, start);
 
-            pendingCommit = false;
+            // The transaction itself runs on the next message
+            if (afterCommit != null) {
+                transitions.postAfterCommit(afterCommit);
+            } else {
+                handler.post(this::finishNavigation);
+            }
         });
     }
 
-    private void safeCommit(FragmentTransaction transaction) {
-        if (fragmentManager.isStateSaved()) return;
-
-        if (pendingCommit) {
-            handler.post(() -> safeCommit(transaction));
+    private void onBackStackChanged() {
+        // Don't handle during restoration
+        if (isRestoring) return;
+        if (popResolved) {
+            popResolved = false;
             return;
         }
+        if (isTransitioning) return;
+        isTransitioning = true;
 
-        pendingCommit = true;
+        DialogScheduler scheduler = findDialogScheduler();
+        if (scheduler != null) scheduler.onNavigationStarted();
+
+        // Only the settling itself: queued commits and their finishNavigation posts stay
+        handler.removeCallbacks(settle);
+        idleScheduler.cancel(this);
+        if (transitions.isActive()) {
+            // Runs when the transition really ended
+            transitions.runWhenIdle(settle);
+        } else {
+            handler.postDelayed(settle, TRANSITION_DELAY);
+        }
+    }
 
-        handler.post(() -> {
-            try {
-                if (!fragmentManager.isStateSaved()) {
-                    transaction.commitAllowingStateLoss();
-                }
-            } catch (Exception ignored) {}
+    private void settleBackStack() {
+        long start = MainThreadMonitor.begin();
+        handleBackStackChange();
+        MainThreadMonitor.end(MainThreadMonitor.OP_BACK_STACK, start);
+        isTransitioning = false;
+        finishNavigation();
+    }
 
-            pendingCommit = false;
-        });
+    private void finishNavigation() {
+        DialogScheduler scheduler = findDialogScheduler();
+        if (scheduler != null) scheduler.onNavigationFinished();
     }
 
-    private void onBackStackChanged() {
-        // Don't handle during restoration
-        if (isRestoring) return;
-        if (isTransitioning) return;
-        isTransitioning = true;
+    @Nullable
+    private DialogScheduler findDialogScheduler() {
+        return DialogScheduler.peek(findActivity());
+    }
+
+    @Nullable
+    private ComponentActivity findActivity() {
+        Context c = context;
+        while (c instanceof ContextWrapper) {
+            if (c instanceof ComponentActivity) return (ComponentActivity) c;
+            c = ((ContextWrapper) c).getBaseContext();
+        }
+        return null;
+    }
 
-        handler.removeCallbacksAndMessages(null);
-        handler.postDelayed(() -> {
-            handleBackStackChange();
-            isTransitioning = false;
-        }, TRANSITION_DELAY);
+    // Hidden fragments go down to CREATED, which destroys their views; showing them rebuilds it
+    private void trimHiddenViews(int level, TrimCoordinator.Release release) {
+        if (fragmentManager.isDestroyed()) return;
+
+        FragmentTransaction transaction = null;
+        for (Fragment f : fragmentManager.getFragments()) {
+            if (f.isAdded() && f.isHidden() && !f.isRemoving() && f.getView() != null) {
+                if (transaction == null) {
+                    transaction = fragmentManager.beginTransaction();
+                    transaction.setReorderingAllowed(true);
+                }
+                transaction.setMaxLifecycle(f, Lifecycle.State.CREATED);
+                release.addObjects(1);
+            }
+        }
+        if (transaction != null) transaction.commitAllowingStateLoss();
     }
 
     private void removePoppedFragmentsAfterAnimation(FragmentManager fm) {
-        handler.postDelayed(() -> {
-            FragmentTransaction removeTransaction = fm.beginTransaction();
-            removeTransaction.setReorderingAllowed(true);
+        // After the animation, in the first idle pass so the next frames are not delayed
+        idleScheduler.schedule(this, () -> {
+            long start = MainThreadMonitor.begin();
+            FragmentTransaction removeTransaction = null;
 
             for (Fragment f : fm.getFragments()) {
                 if (f.isRemoving()) {
+                    if (removeTransaction == null) {
+                        removeTransaction = fm.beginTransaction();
+                        removeTransaction.setReorderingAllowed(true);
+                    }
                     removeTransaction.remove(f);
                 }
             }
 
-            removeTransaction.commitAllowingStateLoss();
-        }, TRANSITION_DELAY);
+            // Nothing popped: no empty transaction
+            if (removeTransaction != null) removeTransaction.commitAllowingStateLoss();
+            MainThreadMonitor.end(MainThreadMonitor.OP_COMMIT, start);
+        }, TRANSITION_DELAY, TRANSITION_DELAY + CLEANUP_DEADLINE);
     }
 
     public void dismissAllDialogs() {
         dismissAllDialogs(fragmentManager);
+
+        // Dialogs queued or shown through DialogManager / BottomSheetManager
+        DialogScheduler scheduler = findDialogScheduler();
+        if (scheduler != null) scheduler.dismissAll();
     }
 
     public void dismissAllDialogs(FragmentManager fragmentManager) {
@@ -264,22 +521,112 @@ public class ActivityNavigator {
         return count;
     }
 
+    /**
+     * Pops back to the first back stack entry.
+     */
     public void popToFirstFragment() {
-        if (fragmentManager.getBackStackEntryCount() > 1) {
-            fragmentManager.popBackStack(
-                    fragmentManager.getBackStackEntryAt(1).getId(),
-                    FragmentManager.POP_BACK_STACK_INCLUSIVE
-            );
+        if (commits.isCommitting()) {
+            handler.post(this::popToFirstFragment);
+            return;
         }
+        popEntries(Math.min(1, fragmentManager.getBackStackEntryCount()));
+    }
 
-        safeCommit(() -> {
-            Fragment firstFragment = fragmentManager.findFragmentById(containerId);
-            if (firstFragment != null) {
-                FragmentTransaction transaction = fragmentManager.beginTransaction();
-                transaction.show(firstFragment);
-                transaction.setMaxLifecycle(firstFragment, Lifecycle.State.RESUMED);
-                transaction.commitAllowingStateLoss();
+    /**
+     * Pops back to the last back stack entry of {@code route} (the fragment's class simple
+     * name), or to the fragments outside of the back stack when it is one of them.
+     */
+    public void popToRoute(@NonNull String route) {
+        if (commits.isCommitting()) {
+            handler.post(() -> popToRoute(route));
+            return;
+        }
+        for (int i = fragmentManager.getBackStackEntryCount() - 1; i >= 0; i--) {
+            if (route.equals(fragmentManager.getBackStackEntryAt(i).getName())) {
+                popEntries(i + 1);
+                return;
             }
-        });
+        }
+        Fragment root = fragmentManager.findFragmentByTag(route);
+        if (root != null && root == findRoot()) popEntries(0);
+    }
+
+    /**
+     * Pops {@code count} back stack entries at once.
+     */
+    public void popBack(int count) {
+        if (commits.isCommitting()) {
+            handler.post(() -> popBack(count));
+            return;
+        }
+        popEntries(Math.max(0, fragmentManager.getBackStackEntryCount() - count));
+    }
+
+    private void popEntries(int remaining) {
+        long start = MainThreadMonitor.begin();
+        popEntriesNow(remaining);
+        MainThreadMonitor.end(MainThreadMonitor.OP_BACK_STACK, start);
+    }
+
+    // The pop and a transaction settling the final state are executed in the same batch,
+    // so there is no intermediate frame and no delayed back stack handling
+    private void popEntriesNow(int remaining) {
+        FragmentManager fm = fragmentManager;
+        int count = fm.getBackStackEntryCount();
+        if (remaining >= count || isRestoring || fm.isStateSaved()) return;
+
+        transitions.finish();
+
+        Set<String> remainingNames = new HashSet<>();
+        Set<String> poppedNames = new HashSet<>();
+        for (int i = 0; i < count; i++) {
+            (i < remaining ? remainingNames : poppedNames).add(fm.getBackStackEntryAt(i).getName());
+        }
+        Fragment top = remaining > 0
+                ? fm.findFragmentByTag(fm.getBackStackEntryAt(remaining - 1).getName())
+                : findRoot();
+
+        DialogScheduler scheduler = findDialogScheduler();
+        if (scheduler != null) scheduler.onNavigationStarted();
+
+        popResolved = true;
+        fm.popBackStack(fm.getBackStackEntryAt(remaining).getId(), FragmentManager.POP_BACK_STACK_INCLUSIVE);
+
+        FragmentTransaction transaction = fm.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        for (Fragment f : fm.getFragments()) {
+            if (f == top || f.getId() != containerId || !f.isAdded() || f.isRemoving()) continue;
+            // Fragments added by the popped entries are removed by the pop itself
+            if (poppedNames.contains(f.getTag()) && !remainingNames.contains(f.getTag())) continue;
+
+            transaction.hide(f);
+            boolean trimmed = f.isHidden() && f.getView() == null;
+            transaction.setMaxLifecycle(f, trimmed ? Lifecycle.State.CREATED : Lifecycle.State.STARTED);
+        }
+        if (top != null) {
+            transaction.show(top);
+            transaction.setMaxLifecycle(top, Lifecycle.State.RESUMED);
+        }
+        transaction.runOnCommit(this::finishNavigation);
+        transaction.commitAllowingStateLoss();
+    }
+
+    // Last fragment of the container that is not on the back stack
+    @Nullable
+    private Fragment findRoot() {
+        Set<String> names = new HashSet<>();
+        for (int i = 0; i < fragmentManager.getBackStackEntryCount(); i++) {
+            names.add(fragmentManager.getBackStackEntryAt(i).getName());
+        }
+        List<Fragment> fragments = fragmentManager.getFragments();
+        for (int i = fragments.size() - 1; i >= 0; i--) {
+            Fragment f = fragments.get(i);
+            if (f.getId() == containerId && f.isAdded() && !names.contains(f.getTag())) return f;
+        }
+        return null;
+    }
+
+    public interface TransitionListener {
+        void onTransitionEnd(@NonNull TransitionStats stats);
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package com.devmob.activityhelper.navigator;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+
+/**
+ * Commit queue shared by the navigators: each commit runs in its own main looper message,
+ * in request order. A commit requested while another one is queued waits in the queue and
+ * is posted once that one ran, so a burst of n commits costs n messages.
+ */
+final class CommitQueue {
+
+    // Handler::post of the navigator
+    private final Executor looper;
+    private final ArrayDeque<Runnable> waiting = new ArrayDeque<>();
+    private boolean committing = false;
+    // Bumped by reset(), a message posted before it no longer runs the next commit
+    private int generation = 0;
+
+    CommitQueue(@NonNull Executor looper) {
+        this.looper = looper;
+    }
+
+    void enqueue(@NonNull Runnable commit) {
+        if (committing) {
+            waiting.add(commit);
+            return;
+        }
+        committing = true;
+        post(commit);
+    }
+
+    boolean isCommitting() {
+        return committing;
+    }
+
+    /**
+     * Forgets the queued commits, for when the looper's messages were removed.
+     */
+    void reset() {
+        generation++;
+        waiting.clear();
+        committing = false;
+    }
+
+    private void post(Runnable commit) {
+        int posted = generation;
+        looper.execute(() -> {
+            if (posted != generation) return;
+            try {
+                commit.run();
+            } finally {
+                if (posted == generation) next();
+            }
+        });
+    }
+
+    private void next() {
+        Runnable commit = waiting.poll();
+        if (commit != null) {
+            post(commit);
+        } else {
+            committing = false;
+        }
+    }
+}
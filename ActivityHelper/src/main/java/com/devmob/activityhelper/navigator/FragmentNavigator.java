@@ -1,14 +1,27 @@
 package com.devmob.activityhelper.navigator;
 
 
+import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
 import android.view.View;
 import android.widget.FrameLayout;
 
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
 import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentActivity;
 import androidx.fragment.app.FragmentManager;
 import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.Lifecycle;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.devmob.activityhelper.managers.MainThreadMonitor;
+import com.devmob.activityhelper.managers.RetainedObjectWatcher;
+
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * AppFragmentManagement:
@@ -19,97 +32,221 @@ public class FragmentNavigator {
 
     private final FragmentManager fragmentManager;
     private final Handler handler = new Handler(Looper.getMainLooper());
-    private boolean committing = false; // queue flag
+    private final CommitQueue commits = new CommitQueue(handler::post);
+    private final NavigatorStore.FragmentState state;
+    // Null for navigators built from a bare FragmentManager
+    private final LifecycleOwner host;
+    private final Context context;
     private FragmentRemovedCallback removeCallback;
     private FragmentAddedCallback callback;
 
     public FragmentNavigator(FragmentManager fragmentManager) {
+        this(fragmentManager, new NavigatorStore.FragmentState(), null, null);
+    }
+
+    private FragmentNavigator(FragmentManager fragmentManager, NavigatorStore.FragmentState state,
+                              @Nullable LifecycleOwner host, @Nullable Context context) {
         this.fragmentManager = fragmentManager;
+        this.state = state;
+        this.host = host;
+        this.context = context;
+        takeOverPending();
+        if (host != null) {
+            host.getLifecycle().addObserver(new DefaultLifecycleObserver() {
+                @Override
+                public void onStart(@NonNull LifecycleOwner owner) {
+                    // Requests dropped while the state was saved
+                    takeOverPending();
+                }
+            });
+        }
     }
+
     public static FragmentNavigator with(FragmentManager fragmentManager) {
         return new FragmentNavigator(fragmentManager);
     }
 
+    /**
+     * Navigator of the host's child fragments. Requests not committed yet when the host is
+     * recreated (rotation) are run by the next navigator of the new host, the ones dropped
+     * while its state was saved on its next onStart. Callbacks are not kept, they usually
+     * reference the old views.
+     */
+    public static FragmentNavigator with(Fragment host) {
+        return new FragmentNavigator(host.getChildFragmentManager(), NavigatorStore.of(host).fragmentState(),
+                host, host.requireContext());
+    }
+
+    /**
+     * Same as {@link #with(Fragment)} for the activity's own fragments.
+     */
+    public static FragmentNavigator with(FragmentActivity activity) {
+        return new FragmentNavigator(activity.getSupportFragmentManager(), NavigatorStore.of(activity).fragmentState(),
+                activity, activity);
+    }
+
+    /**
+     * Keeps up to {@code size} replaced fragments hidden with their views, by route, so
+     * adding one of them again shows it instead of inflating a new view. They are removed
+     * on memory pressure. Applies to every navigator of the same host; only for navigators
+     * from {@link #with(Fragment)} or {@link #with(FragmentActivity)}.
+     */
+    public FragmentNavigator setViewPoolSize(int size) {
+        if (host == null || context == null) return this;
+        FragmentViewPool.of(fragmentManager, host, context, Math.max(0, size));
+        return this;
+    }
+
+    public int getViewPoolHits() {
+        FragmentViewPool pool = FragmentViewPool.peek(fragmentManager);
+        return pool != null ? pool.getHits() : 0;
+    }
+
+    public int getViewPoolMisses() {
+        FragmentViewPool pool = FragmentViewPool.peek(fragmentManager);
+        return pool != null ? pool.getMisses() : 0;
+    }
+
+    /**
+     * Share of adds served from the view pool, 0 before the first one.
+     */
+    public float getViewPoolHitRate() {
+        int total = getViewPoolHits() + getViewPoolMisses();
+        return total > 0 ? getViewPoolHits() / (float) total : 0f;
+    }
+
     // ----------------------------------------
     // Add or replace fragment
     // ----------------------------------------
     public FragmentNavigator addFragment(Fragment fragment, FrameLayout frameLayout) {
-        queueCommit(() -> {
-            if (fragmentManager.isStateSaved()) return;
+        enqueue(new NavigatorStore.ChangeRequest(fragment, frameLayout.getId(), fragmentManager));
+        return this;
+    }
 
-            String tag = fragment.getClass().getSimpleName();
+    private void performAdd(Fragment fragment, int containerId) {
+        String tag = fragment.getClass().getSimpleName();
+        Fragment existing = fragmentManager.findFragmentByTag(tag);
 
-            // Prevent duplicate fragment
-            Fragment existing = fragmentManager.findFragmentByTag(tag);
-            if (existing != null && existing.isAdded()) return;
+        FragmentViewPool pool = host != null ? FragmentViewPool.peek(fragmentManager) : null;
+        if (pool != null) {
+            performPooledAdd(pool, fragment, existing, containerId, tag);
+            return;
+        }
 
-            FragmentTransaction transaction = fragmentManager.beginTransaction();
-            transaction.setReorderingAllowed(true);
+        // Prevent duplicate fragment
+        if (existing != null && existing.isAdded()) return;
 
-            fragmentManager.registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
-                @Override
-                public void onFragmentViewCreated(FragmentManager fm, Fragment f, android.view.View v, android.os.Bundle savedInstanceState) {
-                    if (f == fragment && callback != null) {
-                        callback.onFragmentAdded(f);
-                    }
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+
+        watchAdded(fragment);
+
+        transaction.replace(containerId, fragment, tag);
+        transaction.commitAllowingStateLoss();
+    }
+
+    // Hides instead of replacing, shows the pooled fragment of the route when there is one
+    private void performPooledAdd(FragmentViewPool pool, Fragment fragment, @Nullable Fragment existing,
+                                  int containerId, String tag) {
+        boolean pooled = existing != null && existing.getId() == containerId && existing.isAdded() && !existing.isRemoving();
+        // Already showing
+        if (pooled && !existing.isHidden()) return;
+
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+
+        for (Fragment f : fragmentManager.getFragments()) {
+            if (f != existing && f.getId() == containerId && f.isAdded() && !f.isHidden() && !f.isRemoving()) {
+                transaction.hide(f);
+                // Paused but keeps its view
+                transaction.setMaxLifecycle(f, Lifecycle.State.STARTED);
+                pool.onHidden(containerId, f.getTag());
+            }
+        }
+
+        if (pooled) {
+            transaction.show(existing);
+            transaction.setMaxLifecycle(existing, Lifecycle.State.RESUMED);
+            if (callback != null) {
+                FragmentAddedCallback addedCallback = callback;
+                transaction.runOnCommit(() -> addedCallback.onFragmentAdded(existing));
+            }
+        } else {
+            watchAdded(fragment);
+            transaction.add(containerId, fragment, tag);
+        }
+        pool.onShown(containerId, tag, pooled);
+
+        for (Fragment evicted : pool.evict(containerId)) {
+            transaction.remove(evicted);
+        }
+        transaction.commitAllowingStateLoss();
+    }
+
+    private void watchAdded(Fragment fragment) {
+        fragmentManager.registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
+            @Override
+            public void onFragmentViewCreated(FragmentManager fm, Fragment f, android.view.View v, android.os.Bundle savedInstanceState) {
+                if (f == fragment && callback != null) {
+                    callback.onFragmentAdded(f);
                 }
-                @Override
-                public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
-                    if (f == fragment && removeCallback != null) {
-                        removeCallback.onFragmentRemoved(f);
-                        fragmentManager.unregisterFragmentLifecycleCallbacks(this);
-                    }
+            }
+            @Override
+            public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
+                if (f == fragment && removeCallback != null) {
+                    removeCallback.onFragmentRemoved(f);
+                    fragmentManager.unregisterFragmentLifecycleCallbacks(this);
+                    RetainedObjectWatcher.release(fragment, "FragmentNavigator.addFragment callbacks");
                 }
-            }, false);
-
+            }
+        }, false);
+        RetainedObjectWatcher.watch(fragment, "FragmentNavigator.addFragment callbacks");
+    }
 
-            transaction.replace(frameLayout.getId(), fragment, tag);
-            transaction.commitAllowingStateLoss();
-        });
+    public FragmentNavigator removeFragment(FrameLayout frameLayout) {
+        enqueue(new NavigatorStore.ChangeRequest(null, frameLayout.getId(), fragmentManager));
         return this;
     }
 
-    public FragmentNavigator removeFragment(FrameLayout frameLayout) {
-        queueCommit(() -> {
-            if (fragmentManager.isStateSaved()) return;
-
-            Fragment target = null;
-
-            // Find fragment in the container
-            for (Fragment fragment : fragmentManager.getFragments()) {
-                if (fragment != null && fragment.isAdded() && !fragment.isRemoving() && fragment.getView() != null) {
-                    // Check if fragment's root view parent matches this container
-                    if (fragment.getView().getParent() != null &&
-                            ((View) fragment.getView().getParent()).getId() == frameLayout.getId()) {
-                        target = fragment;
-                        break;
-                    }
+    private void performRemove(int containerId) {
+        Fragment target = null;
+
+        // Find fragment in the container
+        for (Fragment fragment : fragmentManager.getFragments()) {
+            // Pooled fragments are hidden, the one to remove is the one showing
+            if (fragment != null && fragment.isAdded() && !fragment.isRemoving() && !fragment.isHidden()
+                    && fragment.getView() != null) {
+                // Check if fragment's root view parent matches this container
+                if (fragment.getView().getParent() != null &&
+                        ((View) fragment.getView().getParent()).getId() == containerId) {
+                    target = fragment;
+                    break;
                 }
             }
+        }
 
-            if (target == null) return; // nothing to remove
+        if (target == null) return; // nothing to remove
 
-            Fragment fragmentToRemove = target;
+        Fragment fragmentToRemove = target;
 
-            // Listen for fragment destroy to call callback
-            fragmentManager.registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
-                @Override
-                public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
-                    if (f == fragmentToRemove) {
-                        if (removeCallback != null) removeCallback.onFragmentRemoved(f);
-                        fragmentManager.unregisterFragmentLifecycleCallbacks(this);
-                    }
+        // Listen for fragment destroy to call callback
+        fragmentManager.registerFragmentLifecycleCallbacks(new FragmentManager.FragmentLifecycleCallbacks() {
+            @Override
+            public void onFragmentDestroyed(FragmentManager fm, Fragment f) {
+                if (f == fragmentToRemove) {
+                    if (removeCallback != null) removeCallback.onFragmentRemoved(f);
+                    fragmentManager.unregisterFragmentLifecycleCallbacks(this);
+                    RetainedObjectWatcher.release(fragmentToRemove, "FragmentNavigator.removeFragment callbacks");
                 }
-            }, false);
-
-            // Remove the fragment safely
-            fragmentManager.beginTransaction()
-                    .setReorderingAllowed(true)
-                    .remove(target)
-                    .commitAllowingStateLoss();
-        });
+            }
+        }, false);
+        RetainedObjectWatcher.watch(fragmentToRemove, "FragmentNavigator.removeFragment callbacks");
 
-        return this;
+        // Remove the fragment safely
+        fragmentManager.beginTransaction()
+                .setReorderingAllowed(true)
+                .remove(target)
+                .commitAllowingStateLoss();
     }
 
 
@@ -119,24 +256,51 @@ public class FragmentNavigator {
     // ----------------------------------------
     // Internal commit queue
     // ----------------------------------------
-    private void queueCommit(Runnable action) {
-        if (fragmentManager.isStateSaved()) return;
+    private void enqueue(NavigatorStore.ChangeRequest request) {
+        state.pending.add(request);
+        queueCommit(request);
+    }
 
-        if (committing) {
-            handler.post(() -> queueCommit(action));
-            return;
+    // Requests queued on a previous FragmentManager or dropped while the state was saved.
+    // Each is queued again as a new request, so the message the previous navigator posted
+    // for it no longer finds it pending and does nothing.
+    private void takeOverPending() {
+        List<NavigatorStore.ChangeRequest> taken = new ArrayList<>();
+        for (NavigatorStore.ChangeRequest request : state.pending) {
+            if (request.dropped || !request.isQueuedOn(fragmentManager)) taken.add(request);
         }
+        if (taken.isEmpty()) return;
+        state.pending.removeAll(taken);
+        for (NavigatorStore.ChangeRequest request : taken) {
+            enqueue(new NavigatorStore.ChangeRequest(request.fragment, request.containerId, fragmentManager));
+        }
+    }
 
-        committing = true;
+    private void queueCommit(NavigatorStore.ChangeRequest request) {
+        if (fragmentManager.isStateSaved()) {
+            request.dropped = true;
+            return;
+        }
 
-        handler.post(() -> {
+        commits.enqueue(() -> {
+            long start = MainThreadMonitor.begin();
             try {
+                // Taken over by the navigator of a recreated host
+                if (!state.pending.contains(request)) return;
+
                 if (!fragmentManager.isStateSaved()) {
-                    action.run();
+                    state.pending.remove(request);
+                    if (request.fragment != null) {
+                        performAdd(request.fragment, request.containerId);
+                    } else {
+                        performRemove(request.containerId);
+                    }
+                } else {
+                    request.dropped = true;
                 }
             } catch (Exception ignored) {
             } finally {
-                committing = false;
+                MainThreadMonitor.end(MainThreadMonitor.OP_COMMIT, start);
             }
         });
     }
@@ -0,0 +1,168 @@
+package com.devmob.activityhelper.navigator;
+
+import android.content.Context;
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.DefaultLifecycleObserver;
+import androidx.lifecycle.LifecycleOwner;
+
+import com.devmob.activityhelper.managers.TrimCoordinator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Replaced fragments of a {@link FragmentNavigator} kept hidden with their views, by container
+ * and route (fragment tag), so switching back shows them instead of inflating a new view. At
+ * most {@code maxSize} are kept per container, least recently shown go first; all of them are
+ * removed on memory pressure. Only fragments the pool hid are tracked, other hidden fragments
+ * of the FragmentManager (back stacks, other containers) are never touched.
+ */
+final class FragmentViewPool implements TrimCoordinator.Trimmable, DefaultLifecycleObserver {
+
+    // One pool per FragmentManager, removed when its host is destroyed
+    private static final HashMap<FragmentManager, FragmentViewPool> pools = new HashMap<>();
+
+    private final FragmentManager fragmentManager;
+    private final Context context;
+    // Per container id, most recently hidden first
+    private final SparseArray<ArrayDeque<String>> containers = new SparseArray<>();
+    private int maxSize;
+
+    // Stats
+    private int hits = 0;
+    private int misses = 0;
+
+    private FragmentViewPool(FragmentManager fragmentManager, Context context, int maxSize) {
+        this.fragmentManager = fragmentManager;
+        this.context = context.getApplicationContext();
+        this.maxSize = maxSize;
+    }
+
+    static FragmentViewPool of(FragmentManager fragmentManager, LifecycleOwner host, Context context, int maxSize) {
+        FragmentViewPool pool = pools.get(fragmentManager);
+        if (pool == null) {
+            pool = new FragmentViewPool(fragmentManager, context, maxSize);
+            pools.put(fragmentManager, pool);
+            host.getLifecycle().addObserver(pool);
+            TrimCoordinator.getInstance(context).register("FragmentNavigator", TrimCoordinator.STAGE_CACHES, pool);
+        }
+        pool.maxSize = maxSize;
+        return pool;
+    }
+
+    @Nullable
+    static FragmentViewPool peek(FragmentManager fragmentManager) {
+        return pools.get(fragmentManager);
+    }
+
+    // Fragments hidden by the pool before a configuration change come back hidden: the first
+    // use of a container adopts its hidden fragments, except the ones of back stack entries
+    private ArrayDeque<String> tagsOf(int containerId) {
+        ArrayDeque<String> tags = containers.get(containerId);
+        if (tags != null) return tags;
+
+        tags = new ArrayDeque<>();
+        containers.put(containerId, tags);
+        Set<String> backStack = new HashSet<>();
+        for (int i = 0; i < fragmentManager.getBackStackEntryCount(); i++) {
+            backStack.add(fragmentManager.getBackStackEntryAt(i).getName());
+        }
+        for (Fragment f : fragmentManager.getFragments()) {
+            if (f.getId() == containerId && f.isAdded() && f.isHidden() && f.getTag() != null
+                    && !backStack.contains(f.getTag())) {
+                tags.addFirst(f.getTag());
+            }
+        }
+        return tags;
+    }
+
+    // ---- Called while building a transaction ----
+
+    void onHidden(int containerId, String tag) {
+        ArrayDeque<String> tags = tagsOf(containerId);
+        tags.remove(tag);
+        tags.addFirst(tag);
+    }
+
+    void onShown(int containerId, String tag, boolean hit) {
+        tagsOf(containerId).remove(tag);
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    /**
+     * Pooled fragments of the container over the size limit, to remove in the same transaction.
+     */
+    List<Fragment> evict(int containerId) {
+        ArrayDeque<String> tags = tagsOf(containerId);
+        List<Fragment> evicted = new ArrayList<>();
+        while (tags.size() > maxSize) {
+            Fragment fragment = fragmentManager.findFragmentByTag(tags.removeLast());
+            if (isPooled(fragment, containerId)) evicted.add(fragment);
+        }
+        return evicted;
+    }
+
+    private static boolean isPooled(@Nullable Fragment fragment, int containerId) {
+        return fragment != null && fragment.getId() == containerId && fragment.isAdded() && fragment.isHidden();
+    }
+
+    // ---- Stats ----
+
+    int getHits() {
+        return hits;
+    }
+
+    int getMisses() {
+        return misses;
+    }
+
+    int size() {
+        int size = 0;
+        for (int i = 0; i < containers.size(); i++) size += containers.valueAt(i).size();
+        return size;
+    }
+
+    // ---- Lifecycle ----
+
+    @Override
+    public void onTrim(int level, @NonNull TrimCoordinator.Release release) {
+        if (size() == 0 || fragmentManager.isDestroyed()) return;
+
+        FragmentTransaction transaction = fragmentManager.beginTransaction();
+        transaction.setReorderingAllowed(true);
+        for (int i = 0; i < containers.size(); i++) {
+            int containerId = containers.keyAt(i);
+            ArrayDeque<String> tags = containers.valueAt(i);
+            for (String tag : tags) {
+                Fragment fragment = fragmentManager.findFragmentByTag(tag);
+                if (isPooled(fragment, containerId)) {
+                    transaction.remove(fragment);
+                    release.addObjects(1);
+                }
+            }
+            tags.clear();
+        }
+        transaction.commitAllowingStateLoss();
+    }
+
+    @Override
+    public void onDestroy(@NonNull LifecycleOwner owner) {
+        owner.getLifecycle().removeObserver(this);
+        TrimCoordinator.getInstance(context).unregister(this);
+        pools.remove(fragmentManager);
+    }
+}
@@ -0,0 +1,36 @@
+package com.devmob.activityhelper.navigator;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Size of the compact navigation state when it was saved, and how long rebuilding the
+ * stack from it took.
+ */
+public final class NavigationStateReport {
+    public final int routes;
+    /** Bytes written to the saved-state Bundle */
+    public final int savedBytes;
+    /** Arguments moved out of the Bundle to files */
+    public final int spilledArgs;
+    public final long spilledBytes;
+    /** Time to rebuild the stack, -1 for a save */
+    public final long restoreMillis;
+
+    NavigationStateReport(int routes, int savedBytes, int spilledArgs, long spilledBytes, long restoreMillis) {
+        this.routes = routes;
+        this.savedBytes = savedBytes;
+        this.spilledArgs = spilledArgs;
+        this.spilledBytes = spilledBytes;
+        this.restoreMillis = restoreMillis;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        String base = String.format(Locale.US, "%d routes, %d bytes saved, %d args spilled (%d bytes)",
+                routes, savedBytes, spilledArgs, spilledBytes);
+        return restoreMillis >= 0 ? "Restored " + base + " in " + restoreMillis + "ms" : "Saved " + base;
+    }
+}
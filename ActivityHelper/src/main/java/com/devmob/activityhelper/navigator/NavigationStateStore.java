@@ -0,0 +1,438 @@
+package com.devmob.activityhelper.navigator;
+
+import android.content.Context;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Parcel;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.fragment.app.FragmentTransaction;
+import androidx.lifecycle.Lifecycle;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Compact saved state of an {@link ActivityNavigator}: one route (class, tag, arguments)
+ * per fragment of the container plus the back stack names, instead of the full state of
+ * every fragment. Arguments bigger than {@link #SPILL_THRESHOLD} go to a file so the
+ * Bundle stays small. Files are written, read and deleted on a background thread, the
+ * arguments spilled by the last save are also kept in memory while the store lives.
+ * Only used for saves that may outlive the process, not for configuration changes.
+ */
+final class NavigationStateStore {
+
+    private static final String TAG = "ActivityHelper";
+
+    // Key FragmentManager saves the state of all its fragments under
+    static final String FRAGMENTS_STATE_KEY = "android:support:fragments";
+
+    private static final int SPILL_THRESHOLD = 8 * 1024;
+    private static final String DIRECTORY = "activityhelper_navigation";
+
+    private static final String KEY_STORE = "store";
+    private static final String KEY_ROUTES = "routes";
+    private static final String KEY_BACK_STACK = "backStack";
+    private static final String KEY_CLASS = "class";
+    private static final String KEY_TAG = "tag";
+    private static final String KEY_VISIBLE = "visible";
+    private static final String KEY_ARGS = "args";
+    private static final String KEY_ARGS_FILE = "argsFile";
+
+    private static ExecutorService executor;
+    private static boolean staleSwept = false;
+
+    private final Context context;
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private String storeId = UUID.randomUUID().toString();
+    // Arguments spilled by the last save, by file name
+    private final HashMap<String, byte[]> spilled = new HashMap<>();
+    // State of a restore still waiting for its files, saved again as is
+    private Bundle pendingRestore = null;
+    private NavigationStateReport lastReport = null;
+
+    NavigationStateStore(Context context) {
+        this.context = context.getApplicationContext();
+        sweepStale(new File(this.context.getFilesDir(), DIRECTORY));
+    }
+
+    @Nullable
+    NavigationStateReport getLastReport() {
+        return lastReport;
+    }
+
+    boolean isRestorePending() {
+        return pendingRestore != null;
+    }
+
+    // ---- Save ----
+
+    @NonNull
+    Bundle save(FragmentManager fm, int containerId) {
+        // The fragments are not added yet, the state to restore is still the current one
+        if (pendingRestore != null) return pendingRestore;
+
+        HashMap<String, byte[]> files = new HashMap<>();
+        ArrayList<Bundle> routes = new ArrayList<>();
+        int spilledArgs = 0;
+        long spilledBytes = 0;
+        for (Fragment f : fm.getFragments()) {
+            if (f.getId() != containerId || !f.isAdded() || f.isRemoving()) continue;
+
+            Bundle route = new Bundle();
+            route.putString(KEY_CLASS, f.getClass().getName());
+            route.putString(KEY_TAG, f.getTag());
+            route.putBoolean(KEY_VISIBLE, !f.isHidden());
+
+            Bundle args = f.getArguments();
+            if (args != null) {
+                byte[] bytes = args.isEmpty() ? null : marshall(args);
+                if (bytes != null && bytes.length > SPILL_THRESHOLD) {
+                    String file = UUID.randomUUID().toString();
+                    files.put(file, bytes);
+                    route.putString(KEY_ARGS_FILE, file);
+                    spilledArgs++;
+                    spilledBytes += bytes.length;
+                } else {
+                    route.putBundle(KEY_ARGS, args);
+                }
+            }
+            routes.add(route);
+        }
+
+        ArrayList<String> backStack = new ArrayList<>();
+        for (int i = 0; i < fm.getBackStackEntryCount(); i++) {
+            backStack.add(fm.getBackStackEntryAt(i).getName());
+        }
+
+        Bundle state = new Bundle();
+        state.putString(KEY_STORE, storeId);
+        state.putParcelableArrayList(KEY_ROUTES, routes);
+        state.putStringArrayList(KEY_BACK_STACK, backStack);
+
+        spilled.clear();
+        spilled.putAll(files);
+        File directory = directory();
+        getExecutor().execute(() -> {
+            deleteFiles(directory);
+            if (!files.isEmpty() && !directory.isDirectory() && !directory.mkdirs()) return;
+            for (Map.Entry<String, byte[]> file : files.entrySet()) {
+                write(new File(directory, file.getKey()), file.getValue());
+            }
+        });
+
+        lastReport = new NavigationStateReport(routes.size(), sizeOf(state), spilledArgs, spilledBytes, -1);
+        return state;
+    }
+
+    // ---- Restore ----
+
+    /**
+     * Replays the saved stack: the routes that are not on the back stack in one transaction,
+     * then one transaction per back stack entry as {@link ActivityNavigator#openFragment} did.
+     * Only the top fragment goes past CREATED, the others get their view when shown again.
+     * Spilled arguments not in memory (after process death) are read in the background
+     * first, the stack is replayed once they are.
+     *
+     * @param onRestored called on the main thread once the stack is replayed
+     * @return false when there was nothing to restore
+     */
+    boolean restore(@NonNull Bundle state, FragmentManager fm, int containerId, @NonNull Runnable onRestored) {
+        long start = SystemClock.uptimeMillis();
+        String savedStore = state.getString(KEY_STORE);
+        if (savedStore != null && !savedStore.equals(storeId)) {
+            // Another process spilled them
+            storeId = savedStore;
+            spilled.clear();
+        }
+
+        List<Bundle> routes = state.getParcelableArrayList(KEY_ROUTES);
+        if (routes == null || routes.isEmpty()) return false;
+
+        Fragment[] fragments = new Fragment[routes.size()];
+        int restored = 0;
+        List<String> missing = new ArrayList<>();
+        for (int i = 0; i < routes.size(); i++) {
+            Fragment fragment = instantiate(fm, routes.get(i).getString(KEY_CLASS));
+            if (fragment == null) continue;
+            fragments[i] = fragment;
+            restored++;
+
+            String file = routes.get(i).getString(KEY_ARGS_FILE);
+            if (file != null && !spilled.containsKey(file)) missing.add(file);
+        }
+        if (restored == 0) return false;
+
+        if (missing.isEmpty()) {
+            replay(state, fragments, fm, containerId, start);
+            onRestored.run();
+            return true;
+        }
+
+        pendingRestore = state;
+        File directory = directory();
+        getExecutor().execute(() -> {
+            HashMap<String, byte[]> read = new HashMap<>();
+            for (String file : missing) {
+                byte[] bytes = read(new File(directory, file));
+                if (bytes != null) read.put(file, bytes);
+            }
+            handler.post(() -> {
+                spilled.putAll(read);
+                // A recreated activity restores the same state on its own
+                if (pendingRestore == state) pendingRestore = null;
+                if (fm.isDestroyed()) return;
+                replay(state, fragments, fm, containerId, start);
+                onRestored.run();
+            });
+        });
+        return true;
+    }
+
+    private void replay(Bundle state, Fragment[] fragments, FragmentManager fm, int containerId, long start) {
+        List<Bundle> routes = state.getParcelableArrayList(KEY_ROUTES);
+        List<String> backStack = state.getStringArrayList(KEY_BACK_STACK);
+        if (backStack == null) backStack = new ArrayList<>();
+        Set<String> backStackTags = new HashSet<>(backStack);
+        int spilledArgs = 0;
+        long spilledBytes = 0;
+
+        for (int i = 0; i < routes.size(); i++) {
+            Fragment fragment = fragments[i];
+            if (fragment == null) continue;
+
+            Bundle route = routes.get(i);
+            Bundle args = route.getBundle(KEY_ARGS);
+            String file = route.getString(KEY_ARGS_FILE);
+            byte[] bytes = file != null ? spilled.get(file) : null;
+            if (bytes != null) {
+                args = unmarshall(bytes);
+                spilledArgs++;
+                spilledBytes += bytes.length;
+            } else if (file != null) {
+                Log.w(TAG, "Arguments of route " + route.getString(KEY_CLASS) + " are lost");
+            }
+            if (args != null) fragment.setArguments(args);
+        }
+
+        Set<Fragment> added = new HashSet<>();
+        List<Fragment> shown = new ArrayList<>();
+        Fragment top = null;
+        int restored = 0;
+
+        // Fragments added outside of the back stack
+        FragmentTransaction roots = fm.beginTransaction().setReorderingAllowed(true);
+        for (int i = 0; i < routes.size(); i++) {
+            Fragment fragment = fragments[i];
+            String tag = routes.get(i).getString(KEY_TAG);
+            if (fragment == null) continue;
+            restored++;
+            if (backStackTags.contains(tag)) continue;
+
+            roots.add(containerId, fragment, tag);
+            added.add(fragment);
+            // Under a back stack only the last root was showing when the first entry was opened
+            boolean show = backStack.isEmpty()
+                    ? routes.get(i).getBoolean(KEY_VISIBLE)
+                    : isLastRoot(routes, backStackTags, i);
+            if (show) {
+                shown.add(fragment);
+                top = fragment;
+            } else {
+                roots.hide(fragment);
+            }
+            roots.setMaxLifecycle(fragment, Lifecycle.State.CREATED);
+        }
+        if (!added.isEmpty()) roots.commitAllowingStateLoss();
+
+        // Back stack entries, each one hides what was showing and shows its fragment
+        for (String name : backStack) {
+            int index = indexOfTag(routes, name);
+            if (index < 0 || fragments[index] == null) continue;
+            Fragment target = fragments[index];
+
+            FragmentTransaction entry = fm.beginTransaction().setReorderingAllowed(true);
+            for (Fragment fragment : shown) {
+                if (fragment != target) entry.hide(fragment);
+            }
+            shown.clear();
+            if (added.add(target)) entry.add(containerId, target, name);
+            entry.show(target);
+            entry.setMaxLifecycle(target, Lifecycle.State.CREATED);
+            entry.addToBackStack(name);
+            entry.commitAllowingStateLoss();
+            shown.add(target);
+            top = target;
+        }
+
+        if (top != null) {
+            fm.beginTransaction()
+                    .setReorderingAllowed(true)
+                    .setMaxLifecycle(top, Lifecycle.State.RESUMED)
+                    .commitAllowingStateLoss();
+        }
+        fm.executePendingTransactions();
+
+        lastReport = new NavigationStateReport(restored, sizeOf(state), spilledArgs, spilledBytes,
+                SystemClock.uptimeMillis() - start);
+    }
+
+    /**
+     * Drops the spilled arguments, for when the activity is finishing.
+     */
+    void clear() {
+        spilled.clear();
+        File directory = directory();
+        getExecutor().execute(() -> {
+            deleteFiles(directory);
+            directory.delete();
+        });
+    }
+
+    // ---- Internal ----
+
+    private static boolean isLastRoot(List<Bundle> routes, Set<String> backStackTags, int index) {
+        for (int i = index + 1; i < routes.size(); i++) {
+            if (!backStackTags.contains(routes.get(i).getString(KEY_TAG))) return false;
+        }
+        return true;
+    }
+
+    private static int indexOfTag(List<Bundle> routes, String tag) {
+        for (int i = 0; i < routes.size(); i++) {
+            String routeTag = routes.get(i).getString(KEY_TAG);
+            if (routeTag != null && routeTag.equals(tag)) return i;
+        }
+        return -1;
+    }
+
+    @Nullable
+    private Fragment instantiate(FragmentManager fm, @Nullable String className) {
+        if (className == null) return null;
+        try {
+            return fm.getFragmentFactory().instantiate(context.getClassLoader(), className);
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Can't restore route " + className, e);
+            return null;
+        }
+    }
+
+    private File directory() {
+        return new File(new File(context.getFilesDir(), DIRECTORY), storeId);
+    }
+
+    private static void write(File file, byte[] bytes) {
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(bytes);
+        } catch (IOException e) {
+            Log.w(TAG, "Can't spill navigation arguments", e);
+        }
+    }
+
+    @Nullable
+    private static byte[] read(File file) {
+        try (FileInputStream in = new FileInputStream(file)) {
+            byte[] bytes = new byte[(int) file.length()];
+            int offset = 0;
+            while (offset < bytes.length) {
+                int count = in.read(bytes, offset, bytes.length - offset);
+                if (count < 0) return null;
+                offset += count;
+            }
+            return bytes;
+        } catch (IOException e) {
+            Log.w(TAG, "Can't read navigation arguments", e);
+            return null;
+        }
+    }
+
+    private static void deleteFiles(File directory) {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) file.delete();
+    }
+
+    // Directories last written before the device booted belong to saved states the system
+    // dropped. Newer ones may still be restored by other activities of the task.
+    private static synchronized void sweepStale(File root) {
+        if (staleSwept) return;
+        staleSwept = true;
+        long bootTime = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+        getExecutor().execute(() -> {
+            File[] directories = root.listFiles();
+            if (directories == null) return;
+            for (File directory : directories) {
+                if (directory.lastModified() >= bootTime) continue;
+                deleteFiles(directory);
+                directory.delete();
+            }
+        });
+    }
+
+    private static synchronized ExecutorService getExecutor() {
+        if (executor == null) {
+            executor = Executors.newSingleThreadExecutor(runnable -> {
+                Thread thread = new Thread(runnable, "ActivityHelper-NavigationState");
+                thread.setPriority(Thread.NORM_PRIORITY - 1);
+                return thread;
+            });
+        }
+        return executor;
+    }
+
+    // Null when the Bundle holds something that can't be flattened (binders, file descriptors)
+    @Nullable
+    private static byte[] marshall(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.marshall();
+        } catch (RuntimeException e) {
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @Nullable
+    private Bundle unmarshall(byte[] bytes) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.unmarshall(bytes, 0, bytes.length);
+            parcel.setDataPosition(0);
+            return parcel.readBundle(context.getClassLoader());
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Can't read navigation arguments", e);
+            return null;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    private static int sizeOf(Bundle bundle) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            parcel.writeBundle(bundle);
+            return parcel.dataSize();
+        } finally {
+            parcel.recycle();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.devmob.activityhelper.navigator;
+
+import android.util.SparseArray;
+
+import androidx.annotation.NonNull;
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+import androidx.lifecycle.ViewModel;
+import androidx.lifecycle.ViewModelProvider;
+import androidx.lifecycle.ViewModelStoreOwner;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Navigator state that survives configuration changes. The navigators created by the new
+ * activity or fragment bind to it by container id instead of rebuilding it, and replay the
+ * navigation requests that were still queued.
+ * <p>
+ * Nothing in here references a view, a FragmentManager or an activity; requests only hold
+ * fragments that were not added yet.
+ */
+public final class NavigatorStore extends ViewModel {
+
+    private final SparseArray<ActivityState> activityStates = new SparseArray<>();
+    private final FragmentState fragmentState = new FragmentState();
+
+    public NavigatorStore() {
+    }
+
+    // ENTRY POINT
+    public static NavigatorStore of(@NonNull ViewModelStoreOwner owner) {
+        return new ViewModelProvider(owner).get(NavigatorStore.class);
+    }
+
+    ActivityState activityState(int containerId) {
+        ActivityState state = activityStates.get(containerId);
+        if (state == null) {
+            state = new ActivityState();
+            activityStates.put(containerId, state);
+        }
+        return state;
+    }
+
+    /**
+     * State of the {@link FragmentNavigator} of the owner's own FragmentManager.
+     */
+    FragmentState fragmentState() {
+        return fragmentState;
+    }
+
+    @Override
+    protected void onCleared() {
+        for (int i = 0; i < activityStates.size(); i++) activityStates.valueAt(i).pending.clear();
+        fragmentState.pending.clear();
+        activityStates.clear();
+    }
+
+    static final class ActivityState {
+        // False until a navigator bound to it, then the restore decision is known
+        boolean bound = false;
+        boolean hasStack = false;
+        TransitionSpec transition = TransitionSpec.slide();
+        NavigationStateStore stateStore = null;
+        final List<OpenRequest> pending = new ArrayList<>();
+    }
+
+    static final class FragmentState {
+        final List<ChangeRequest> pending = new ArrayList<>();
+    }
+
+    static final class OpenRequest {
+        final Fragment fragment;
+        final boolean addToBackStack;
+        final boolean animate;
+        // Its commit will not happen, the next navigator or onStart opens it again
+        boolean dropped = false;
+
+        OpenRequest(Fragment fragment, boolean addToBackStack, boolean animate) {
+            this.fragment = fragment;
+            this.addToBackStack = addToBackStack;
+            this.animate = animate;
+        }
+    }
+
+    static final class ChangeRequest {
+        // Null for a removal
+        final Fragment fragment;
+        final int containerId;
+        // FragmentManager it was queued on, weak as the store outlives it
+        private final WeakReference<FragmentManager> manager;
+        // Its commit will not happen, onStart or the next navigator queues it again
+        boolean dropped = false;
+
+        ChangeRequest(Fragment fragment, int containerId, FragmentManager manager) {
+            this.fragment = fragment;
+            this.containerId = containerId;
+            this.manager = new WeakReference<>(manager);
+        }
+
+        boolean isQueuedOn(FragmentManager fragmentManager) {
+            return manager.get() == fragmentManager;
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.devmob.activityhelper.navigator;
+
+import android.animation.Animator;
+import android.animation.AnimatorListenerAdapter;
+import android.animation.ValueAnimator;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.Display;
+import android.view.View;
+import android.view.ViewTreeObserver;
+import android.view.animation.PathInterpolator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs one {@link TransitionSpec} at a time on the fragment roots of an {@link ActivityNavigator}.
+ * Both roots are on hardware layers only while the animation runs, so each frame is just
+ * a recomposition of two textures. The navigator defers its back stack handling until
+ * {@link #runWhenIdle the transition ended}.
+ */
+final class TransitionEngine {
+
+    private static final long DEFAULT_FRAME_NANOS = 16_666_667;
+    // Enough to draw the entering root last, too small to cast a visible shadow
+    private static final float RAISE_Z = 0.01f;
+
+    // Not cleared with the navigator's handler on back stack changes
+    private final Handler handler = new Handler(Looper.getMainLooper());
+    private final List<Runnable> afterEnd = new ArrayList<>();
+
+    private boolean expected = false;
+    private Running running = null;
+    private TransitionStats lastStats = null;
+
+    /**
+     * A transition will start once the pending transaction ran.
+     */
+    void expect() {
+        expected = true;
+    }
+
+    /**
+     * Runs {@code action} on the main thread after the transaction committed before it executed.
+     */
+    void postAfterCommit(Runnable action) {
+        handler.post(action);
+    }
+
+    boolean isActive() {
+        return expected || running != null;
+    }
+
+    /**
+     * Runs {@code action} now, or when the current transition ends.
+     */
+    void runWhenIdle(Runnable action) {
+        if (isActive()) {
+            afterEnd.add(action);
+        } else {
+            action.run();
+        }
+    }
+
+    @Nullable
+    TransitionStats getLastStats() {
+        return lastStats;
+    }
+
+    void start(@NonNull TransitionSpec spec, @Nullable View entering, @Nullable View exiting, @NonNull EndListener listener) {
+        finish();
+        expected = false;
+        if (entering == null || entering.getParent() == null) {
+            listener.onEnd(null);
+            runEndActions();
+            return;
+        }
+        running = new Running(spec, entering, exiting, listener);
+        running.begin();
+    }
+
+    /**
+     * Jumps to the end of the current transition, running everything waiting for it.
+     */
+    void finish() {
+        if (running != null) {
+            running.interrupted = true;
+            running.animator.end();
+        }
+    }
+
+    /**
+     * Stops without running what waits for the end, for when the host goes away.
+     */
+    void release() {
+        afterEnd.clear();
+        expected = false;
+        handler.removeCallbacksAndMessages(null);
+        if (running != null) {
+            running.listener = null;
+            running.interrupted = true;
+            running.animator.end();
+        }
+    }
+
+    private void runEndActions() {
+        if (isActive()) return;
+        List<Runnable> actions = new ArrayList<>(afterEnd);
+        afterEnd.clear();
+        for (Runnable action : actions) action.run();
+    }
+
+    interface EndListener {
+        /**
+         * @param stats null when nothing was animated
+         */
+        void onEnd(@Nullable TransitionStats stats);
+    }
+
+    private final class Running extends AnimatorListenerAdapter
+            implements ValueAnimator.AnimatorUpdateListener, ViewTreeObserver.OnPreDrawListener {
+
+        final TransitionSpec spec;
+        final View entering;
+        final View exiting;
+        final ValueAnimator animator = ValueAnimator.ofFloat(0f, 1f);
+        EndListener listener;
+        boolean interrupted = false;
+
+        private final List<View> layered = new ArrayList<>(2);
+        private final float enteringTranslationZ;
+        private final long jankNanos;
+        private boolean started = false;
+
+        // Frame stats
+        private long startTime = 0;
+        private long lastFrameNanos = 0;
+        private int frames = 0;
+        private long totalFrameNanos = 0;
+        private long maxFrameNanos = 0;
+        private int jankyFrames = 0;
+
+        Running(TransitionSpec spec, View entering, @Nullable View exiting, EndListener listener) {
+            this.spec = spec;
+            this.entering = entering;
+            this.exiting = exiting;
+            this.listener = listener;
+            this.enteringTranslationZ = entering.getTranslationZ();
+
+            Display display = entering.getDisplay();
+            float refreshRate = display != null ? display.getRefreshRate() : 0f;
+            long frameNanos = refreshRate > 0 ? (long) (1_000_000_000L / refreshRate) : DEFAULT_FRAME_NANOS;
+            this.jankNanos = frameNanos + frameNanos / 2;
+
+            animator.setDuration(spec.getDuration());
+            animator.setInterpolator(new PathInterpolator(0.4f, 0f, 0.2f, 1f));
+            animator.addUpdateListener(this);
+            animator.addListener(this);
+        }
+
+        void begin() {
+            // A fragment shown again sits below the exiting one in the container
+            if (exiting != null && entering.getZ() <= exiting.getZ()) {
+                entering.setTranslationZ(enteringTranslationZ + exiting.getZ() - entering.getZ() + RAISE_Z);
+            }
+            promote(entering);
+            if (exiting != null) promote(exiting);
+            // A freshly added root has no size before its first layout
+            if (entering.isLaidOut()) {
+                spec.apply(entering, exiting, 0f);
+                startAnimator();
+            } else {
+                entering.getViewTreeObserver().addOnPreDrawListener(this);
+            }
+        }
+
+        @Override
+        public boolean onPreDraw() {
+            entering.getViewTreeObserver().removeOnPreDrawListener(this);
+            if (running == this && !started) {
+                spec.apply(entering, exiting, 0f);
+                startAnimator();
+            }
+            return true;
+        }
+
+        private void startAnimator() {
+            started = true;
+            startTime = SystemClock.uptimeMillis();
+            animator.start();
+        }
+
+        private void promote(View view) {
+            if (view.getLayerType() == View.LAYER_TYPE_NONE) {
+                view.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+                layered.add(view);
+            }
+        }
+
+        @Override
+        public void onAnimationUpdate(@NonNull ValueAnimator animation) {
+            long now = System.nanoTime();
+            if (lastFrameNanos != 0) {
+                long frame = now - lastFrameNanos;
+                frames++;
+                totalFrameNanos += frame;
+                if (frame > maxFrameNanos) maxFrameNanos = frame;
+                if (frame > jankNanos) jankyFrames++;
+            }
+            lastFrameNanos = now;
+            spec.apply(entering, exiting, (float) animation.getAnimatedValue());
+        }
+
+        @Override
+        public void onAnimationEnd(Animator animation) {
+            if (running != this) return;
+            running = null;
+            long actual = started ? SystemClock.uptimeMillis() - startTime : 0;
+
+            spec.reset(entering, exiting);
+            entering.setTranslationZ(enteringTranslationZ);
+            for (View view : layered) view.setLayerType(View.LAYER_TYPE_NONE, null);
+            layered.clear();
+
+            lastStats = new TransitionStats(spec.getDuration(), actual, frames, totalFrameNanos,
+                    maxFrameNanos, jankyFrames, interrupted);
+            if (listener != null) {
+                listener.onEnd(lastStats);
+                runEndActions();
+            }
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.devmob.activityhelper.navigator;
+
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+/**
+ * How the entering and exiting fragment roots move during an {@link ActivityNavigator}
+ * transition. Only draw properties (alpha, translation, scale) should be animated so the
+ * hardware layers the views are put on for the transition are reused on every frame.
+ */
+public abstract class TransitionSpec {
+
+    private static final long DEFAULT_DURATION = 250;
+
+    private final long duration;
+
+    protected TransitionSpec(long duration) {
+        this.duration = duration;
+    }
+
+    public long getDuration() {
+        return duration;
+    }
+
+    /**
+     * Called on every frame with the interpolated {@code fraction}, from 0 to 1.
+     */
+    public abstract void apply(@NonNull View entering, @Nullable View exiting, float fraction);
+
+    /**
+     * Puts both views back to their resting state once the transition ended.
+     */
+    public void reset(@NonNull View entering, @Nullable View exiting) {
+        resetView(entering);
+        if (exiting != null) resetView(exiting);
+    }
+
+    private static void resetView(View view) {
+        view.setAlpha(1f);
+        view.setTranslationX(0f);
+        view.setScaleX(1f);
+        view.setScaleY(1f);
+    }
+
+    // ---- Built-in specs ----
+
+    public static TransitionSpec slide() {
+        return slide(DEFAULT_DURATION);
+    }
+
+    /**
+     * Entering screen slides in from the end, the exiting one moves a third of the way out.
+     */
+    public static TransitionSpec slide(long duration) {
+        return new TransitionSpec(duration) {
+            @Override
+            public void apply(@NonNull View entering, @Nullable View exiting, float fraction) {
+                int width = entering.getWidth();
+                int direction = entering.getLayoutDirection() == View.LAYOUT_DIRECTION_RTL ? -1 : 1;
+                entering.setTranslationX(direction * width * (1f - fraction));
+                if (exiting != null) exiting.setTranslationX(-direction * width * fraction / 3f);
+            }
+        };
+    }
+
+    public static TransitionSpec fade() {
+        return fade(DEFAULT_DURATION);
+    }
+
+    public static TransitionSpec fade(long duration) {
+        return new TransitionSpec(duration) {
+            @Override
+            public void apply(@NonNull View entering, @Nullable View exiting, float fraction) {
+                entering.setAlpha(fraction);
+                if (exiting != null) exiting.setAlpha(1f - fraction);
+            }
+        };
+    }
+
+    public static TransitionSpec scale() {
+        return scale(DEFAULT_DURATION);
+    }
+
+    /**
+     * Entering screen fades in while growing from 92%, the exiting one fades out.
+     */
+    public static TransitionSpec scale(long duration) {
+        return new TransitionSpec(duration) {
+            @Override
+            public void apply(@NonNull View entering, @Nullable View exiting, float fraction) {
+                float scale = 0.92f + 0.08f * fraction;
+                entering.setAlpha(fraction);
+                entering.setScaleX(scale);
+                entering.setScaleY(scale);
+                if (exiting != null) exiting.setAlpha(1f - fraction);
+            }
+        };
+    }
+}
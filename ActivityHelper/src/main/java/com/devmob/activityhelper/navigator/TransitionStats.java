@@ -0,0 +1,41 @@
+package com.devmob.activityhelper.navigator;
+
+import androidx.annotation.NonNull;
+
+import java.util.Locale;
+
+/**
+ * Timing of one {@link ActivityNavigator} transition, measured on the frames it actually drew.
+ */
+public final class TransitionStats {
+    /** Duration requested by the spec */
+    public final long plannedMillis;
+    /** From the first frame to the end, as seen by the navigator */
+    public final long actualMillis;
+    public final int frames;
+    public final float averageFrameMillis;
+    public final float maxFrameMillis;
+    /** Frames that took more than one and a half display refresh intervals */
+    public final int jankyFrames;
+    /** Ended early by another navigation or the activity going away */
+    public final boolean interrupted;
+
+    TransitionStats(long plannedMillis, long actualMillis, int frames, long totalFrameNanos,
+                    long maxFrameNanos, int jankyFrames, boolean interrupted) {
+        this.plannedMillis = plannedMillis;
+        this.actualMillis = actualMillis;
+        this.frames = frames;
+        this.averageFrameMillis = frames > 0 ? totalFrameNanos / (frames * 1_000_000f) : 0f;
+        this.maxFrameMillis = maxFrameNanos / 1_000_000f;
+        this.jankyFrames = jankyFrames;
+        this.interrupted = interrupted;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "Transition %dms (planned %dms), %d frames, avg %.1fms, max %.1fms, %d janky%s",
+                actualMillis, plannedMillis, frames, averageFrameMillis, maxFrameMillis, jankyFrames,
+                interrupted ? ", interrupted" : "");
+    }
+}
@@ -0,0 +1,74 @@
+package com.devmob.activityhelper;
+
+import android.os.Looper;
+import android.view.View;
+
+import org.robolectric.shadows.ShadowLog;
+import org.robolectric.shadows.ShadowLooper;
+import org.robolectric.util.ReflectionHelpers;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+
+import static org.robolectric.Shadows.shadowOf;
+
+/**
+ * Counters the performance suite asserts budgets on.
+ */
+public final class PerfBudget {
+
+    // A looper that never goes quiet is a failure of its own
+    private static final int MAX_DRAINED_MESSAGES = 10_000;
+
+    private PerfBudget() {
+    }
+
+    /**
+     * Runs every main looper message, delayed ones included, until the queue is empty.
+     *
+     * @return the number of messages run
+     */
+    public static int drainMainLooper() {
+        ShadowLooper looper = shadowOf(Looper.getMainLooper());
+        int count = 0;
+        while (!looper.getNextScheduledTaskTime().equals(Duration.ZERO)) {
+            looper.runOneTask();
+            if (++count > MAX_DRAINED_MESSAGES) {
+                throw new AssertionError("Main looper still busy after " + MAX_DRAINED_MESSAGES + " messages");
+            }
+        }
+        return count;
+    }
+
+    /**
+     * FragmentTransactions committed since the last {@link ShadowLog#clear()}, needs
+     * {@code FragmentManager.enableDebugLogging(true)}.
+     */
+    public static int countCommits() {
+        int count = 0;
+        for (ShadowLog.LogItem item : ShadowLog.getLogsForTag("FragmentManager")) {
+            if (item.msg != null && item.msg.startsWith("Commit: ")) count++;
+        }
+        return count;
+    }
+
+    /**
+     * Pre-draw listeners registered on {@code view}'s ViewTreeObserver.
+     */
+    public static int countPreDrawListeners(View view) {
+        Object listeners = ReflectionHelpers.getField(view.getViewTreeObserver(), "mOnPreDrawListeners");
+        if (listeners == null) return 0;
+        return ReflectionHelpers.callInstanceMethod(listeners, "size");
+    }
+
+    /**
+     * Bytes allocated so far by the current thread, -1 when the JVM cannot tell.
+     */
+    public static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        if (!threads.isThreadAllocatedMemorySupported() || !threads.isThreadAllocatedMemoryEnabled()) return -1;
+        return threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+}
@@ -0,0 +1,36 @@
+package com.devmob.activityhelper;
+
+import android.os.Bundle;
+import android.view.View;
+import android.widget.EditText;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+/**
+ * Host activity of the performance suite: a fragment container and an input field.
+ */
+public class PerfTestActivity extends AppCompatActivity {
+
+    public FrameLayout container;
+    public EditText input;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        setTheme(com.google.android.material.R.style.Theme_MaterialComponents_DayNight_NoActionBar);
+        super.onCreate(savedInstanceState);
+
+        LinearLayout root = new LinearLayout(this);
+        root.setOrientation(LinearLayout.VERTICAL);
+
+        input = new EditText(this);
+        root.addView(input);
+
+        container = new FrameLayout(this);
+        container.setId(View.generateViewId());
+        root.addView(container);
+
+        setContentView(root);
+    }
+}
@@ -0,0 +1,171 @@
+package com.devmob.activityhelper.managers;
+
+import android.app.Dialog;
+import android.view.View;
+import android.view.Window;
+
+import com.devmob.activityhelper.PerfBudget;
+import com.devmob.activityhelper.PerfTestActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Budgets for the managers: IME calls per frame, pre-draw listeners left attached,
+ * window attribute pushes and allocations per frame.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class ManagerPerformanceTest {
+
+    private static final int KEYBOARD_REQUEST_BURST = 5;
+    private static final int PRE_DRAW_LISTENERS_PER_ATTACH = 1;
+    private static final long BYTES_PER_PRE_DRAW = 1024;
+
+    private ActivityController<PerfTestActivity> controller;
+    private PerfTestActivity activity;
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(PerfTestActivity.class).setup();
+        activity = controller.get();
+        PerfBudget.drainMainLooper();
+        KeyboardManager.resetKeyboardRequestStats();
+    }
+
+    @After
+    public void tearDown() {
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void keyboardRequests_reachImeOncePerFrame() {
+        for (int i = 0; i < KEYBOARD_REQUEST_BURST; i++) KeyboardManager.openKeyboard(activity, activity.input);
+        PerfBudget.drainMainLooper();
+
+        assertEquals(1, KeyboardManager.getDispatchedKeyboardRequests());
+        assertEquals(KEYBOARD_REQUEST_BURST - 1, KeyboardManager.getSuppressedKeyboardRequests());
+    }
+
+    @Test
+    public void keyboardListener_staysWithinPreDrawListenerBudget() {
+        View content = activity.findViewById(android.R.id.content);
+        int before = PerfBudget.countPreDrawListeners(content);
+
+        KeyboardManager.attachKeyboardListener(activity, isOpen -> { });
+        PerfBudget.drainMainLooper();
+
+        // Registration is deferred to an idle pass, the drain must have run it
+        assertEquals(PRE_DRAW_LISTENERS_PER_ATTACH, PerfBudget.countPreDrawListeners(content) - before);
+    }
+
+    @Test
+    public void dialogKeyboardListener_staysWithinPreDrawListenerBudget() {
+        View content = activity.findViewById(android.R.id.content);
+        int before = PerfBudget.countPreDrawListeners(content);
+
+        Dialog dialog = new Dialog(activity);
+        dialog.show();
+        DialogManager.with(dialog).setKeyboardListener(activity, isOpen -> { });
+        PerfBudget.drainMainLooper();
+        assertEquals(PRE_DRAW_LISTENERS_PER_ATTACH, PerfBudget.countPreDrawListeners(content) - before);
+
+        dialog.dismiss();
+        PerfBudget.drainMainLooper();
+        assertEquals("Pre-draw listeners left after dismiss", 0, PerfBudget.countPreDrawListeners(content) - before);
+    }
+
+    @Test
+    public void bottomSheetKeyboardListener_staysWithinPreDrawListenerBudget() {
+        View content = activity.findViewById(android.R.id.content);
+        int before = PerfBudget.countPreDrawListeners(content);
+
+        com.google.android.material.bottomsheet.BottomSheetDialog dialog =
+                new com.google.android.material.bottomsheet.BottomSheetDialog(activity);
+        BottomSheetManager.with(dialog).setKeyboardListener(isOpen -> { }).show();
+        PerfBudget.drainMainLooper();
+        assertEquals(PRE_DRAW_LISTENERS_PER_ATTACH, PerfBudget.countPreDrawListeners(content) - before);
+
+        dialog.dismiss();
+        PerfBudget.drainMainLooper();
+        assertEquals("Pre-draw listeners left after dismiss", 0, PerfBudget.countPreDrawListeners(content) - before);
+    }
+
+    @Test
+    public void preDrawPass_staysWithinAllocationBudget() {
+        View content = activity.findViewById(android.R.id.content);
+        KeyboardManager.attachKeyboardListener(activity, isOpen -> { });
+        PerfBudget.drainMainLooper();
+        assumeTrue(PerfBudget.allocatedBytes() >= 0);
+
+        // Warm up so class loading and shadow setup are not counted
+        for (int i = 0; i < 200; i++) content.getViewTreeObserver().dispatchOnPreDraw();
+
+        int passes = 1000;
+        long start = PerfBudget.allocatedBytes();
+        for (int i = 0; i < passes; i++) content.getViewTreeObserver().dispatchOnPreDraw();
+        long perPass = (PerfBudget.allocatedBytes() - start) / passes;
+
+        assertTrue("Bytes allocated per pre-draw pass: " + perPass + " > " + BYTES_PER_PRE_DRAW,
+                perPass <= BYTES_PER_PRE_DRAW);
+    }
+
+    @Test
+    public void dialogApply_pushesWindowAttributesOnce() {
+        Dialog dialog = new Dialog(activity);
+        int[] pushes = countAttributePushes(dialog.getWindow());
+
+        DialogManager.with(dialog).setDimAmount(0.5f).apply();
+        assertTrue("setAttributes calls: " + pushes[0], pushes[0] <= 1);
+
+        // Same configuration again: nothing to push
+        pushes[0] = 0;
+        DialogManager.with(dialog).setDimAmount(0.5f).apply();
+        assertEquals(0, pushes[0]);
+    }
+
+    @Test
+    public void bottomSheetApply_pushesWindowAttributesOnce() {
+        com.google.android.material.bottomsheet.BottomSheetDialog dialog =
+                new com.google.android.material.bottomsheet.BottomSheetDialog(activity);
+        int[] pushes = countAttributePushes(dialog.getWindow());
+
+        BottomSheetManager.with(dialog).setDimAmount(0.5f).apply();
+        assertTrue("setAttributes calls: " + pushes[0], pushes[0] <= 1);
+
+        pushes[0] = 0;
+        BottomSheetManager.with(dialog).setDimAmount(0.5f).apply();
+        assertEquals(0, pushes[0]);
+    }
+
+    // Window.setAttributes() always ends in Callback.onWindowAttributesChanged()
+    private static int[] countAttributePushes(Window window) {
+        int[] count = {0};
+        Window.Callback original = window.getCallback();
+        window.setCallback((Window.Callback) Proxy.newProxyInstance(
+                Window.Callback.class.getClassLoader(),
+                new Class<?>[]{Window.Callback.class},
+                (proxy, method, args) -> {
+                    if (method.getName().equals("onWindowAttributesChanged")) count[0]++;
+                    try {
+                        return method.invoke(original, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }));
+        return count;
+    }
+}
@@ -0,0 +1,128 @@
+package com.devmob.activityhelper.navigator;
+
+import androidx.fragment.app.Fragment;
+import androidx.fragment.app.FragmentManager;
+
+import com.devmob.activityhelper.PerfBudget;
+import com.devmob.activityhelper.PerfTestActivity;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.android.controller.ActivityController;
+import org.robolectric.annotation.Config;
+import org.robolectric.shadows.ShadowLog;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Budgets for the navigators: transactions per navigation and main looper messages of
+ * the commit queues. Lower a budget when an optimization lands, never raise it to make
+ * a change pass.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 30)
+public class NavigatorPerformanceTest {
+
+    // openFragment and the back stack change handling, the cleanup commits only after a pop
+    private static final int TRANSACTIONS_PER_NAVIGATION = 2;
+    // The pop itself is not a transaction, only the one settling the final state
+    private static final int TRANSACTIONS_PER_POP = 1;
+
+    private static final int COMMIT_BURST = 5;
+    // Commits requested in the same frame wait in the queue, one message each
+    private static final int MESSAGES_PER_COMMIT_BURST = COMMIT_BURST;
+
+    private ActivityController<PerfTestActivity> controller;
+    private PerfTestActivity activity;
+
+    public static class ScreenA extends Fragment {
+    }
+
+    public static class ScreenB extends Fragment {
+    }
+
+    public static class ScreenC extends Fragment {
+    }
+
+    @Before
+    public void setUp() {
+        controller = Robolectric.buildActivity(PerfTestActivity.class).setup();
+        activity = controller.get();
+        PerfBudget.drainMainLooper();
+    }
+
+    @After
+    public void tearDown() {
+        FragmentManager.enableDebugLogging(false);
+        controller.pause().stop().destroy();
+    }
+
+    @Test
+    public void openFragment_staysWithinTransactionBudget() {
+        ActivityNavigator navigator = new ActivityNavigator(activity.getSupportFragmentManager(), activity.container);
+        FragmentManager.enableDebugLogging(true);
+        ShadowLog.clear();
+
+        navigator.openFragment(new ScreenA(), true, false);
+        PerfBudget.drainMainLooper();
+
+        int commits = PerfBudget.countCommits();
+        assertTrue("Transactions per navigation: " + commits + " > " + TRANSACTIONS_PER_NAVIGATION,
+                commits <= TRANSACTIONS_PER_NAVIGATION);
+    }
+
+    @Test
+    public void popBurst_withNothingToPop_postsNothing() {
+        ActivityNavigator navigator = new ActivityNavigator(activity.getSupportFragmentManager(), activity.container);
+        PerfBudget.drainMainLooper();
+
+        // Nothing to pop: nothing may be posted
+        for (int i = 0; i < COMMIT_BURST; i++) navigator.popToFirstFragment();
+        int messages = PerfBudget.drainMainLooper();
+
+        assertEquals("Messages for " + COMMIT_BURST + " pops with an empty back stack", 0, messages);
+    }
+
+    @Test
+    public void popToFirstFragment_resolvesInOneTransaction() {
+        FragmentManager fm = activity.getSupportFragmentManager();
+        ActivityNavigator navigator = new ActivityNavigator(fm, activity.container);
+        navigator.openFragment(new ScreenA(), true, false);
+        PerfBudget.drainMainLooper();
+        navigator.openFragment(new ScreenB(), true, false);
+        PerfBudget.drainMainLooper();
+        navigator.openFragment(new ScreenC(), true, false);
+        PerfBudget.drainMainLooper();
+
+        FragmentManager.enableDebugLogging(true);
+        ShadowLog.clear();
+        navigator.popToFirstFragment();
+        PerfBudget.drainMainLooper();
+
+        int commits = PerfBudget.countCommits();
+        assertTrue("Transactions per pop: " + commits + " > " + TRANSACTIONS_PER_POP,
+                commits <= TRANSACTIONS_PER_POP);
+        assertEquals(1, fm.getBackStackEntryCount());
+        Fragment first = fm.findFragmentByTag("ScreenA");
+        assertTrue(first != null && first.isVisible());
+        assertNull(fm.findFragmentByTag("ScreenC"));
+    }
+
+    @Test
+    public void queueCommitBurst_staysWithinMessageBudget() {
+        FragmentNavigator navigator = FragmentNavigator.with(activity.getSupportFragmentManager());
+
+        // Empty container: only the commit queue itself posts messages
+        for (int i = 0; i < COMMIT_BURST; i++) navigator.removeFragment(activity.container);
+        int messages = PerfBudget.drainMainLooper();
+
+        assertTrue("Messages for " + COMMIT_BURST + " commits: " + messages + " > " + MESSAGES_PER_COMMIT_BURST,
+                messages <= MESSAGES_PER_COMMIT_BURST);
+    }
+}
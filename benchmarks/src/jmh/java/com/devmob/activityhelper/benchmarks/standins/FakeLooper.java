@@ -0,0 +1,36 @@
+package com.devmob.activityhelper.benchmarks.standins;
+
+import java.util.ArrayDeque;
+
+/**
+ * Stand-in for the main looper / {@code Handler}: a FIFO of runnables drained on demand.
+ */
+public final class FakeLooper {
+
+    private final ArrayDeque<Runnable> queue = new ArrayDeque<>();
+    private long postedCount = 0;
+
+    public void post(Runnable runnable) {
+        postedCount++;
+        queue.addLast(runnable);
+    }
+
+    /**
+     * Runs messages until the queue is empty, including the ones they post.
+     */
+    public void drain() {
+        Runnable runnable;
+        while ((runnable = queue.pollFirst()) != null) {
+            runnable.run();
+        }
+    }
+
+    public long getPostedCount() {
+        return postedCount;
+    }
+
+    public void reset() {
+        queue.clear();
+        postedCount = 0;
+    }
+}
@@ -0,0 +1,57 @@
+package com.devmob.activityhelper.managers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Configuration resolution done on every {@code apply()}: {@code ActivityManager}'s options
+ * resolved by {@link StyleOptions} into a {@link WindowState} and diffed against the window.
+ */
+@State(Scope.Thread)
+public class ConfigResolutionBenchmark {
+
+    private static final int SOFT_INPUT_ADJUST_RESIZE = 0x10;
+
+    // Builder state, same as ActivityStyle.Builder().edgeToEdge() with light status bar icons
+    private final StyleOptions options = new StyleOptions();
+    // What ActivityStyle.buildUpon() starts from
+    private final WindowState base = new WindowState();
+
+    private final WindowState resolved = new WindowState();
+    private final WindowState applied = new WindowState();
+    private final WindowState changed = new WindowState();
+
+    @Setup
+    public void setup() {
+        options.setOption(StyleOptions.TRANSPARENT_STATUS_BAR, true);
+        options.setOption(StyleOptions.TRANSPARENT_NAVIGATION_BAR, true);
+        options.setOption(StyleOptions.EXTEND_BEHIND_STATUS_BAR, true);
+        options.setOption(StyleOptions.EXTEND_BEHIND_NAVIGATION_BAR, true);
+        options.state.setFlag(WindowState.LIGHT_STATUS_BAR, true);
+        options.state.setSoftInputMode(SOFT_INPUT_ADJUST_RESIZE);
+
+        options.resolveInto(null, applied);
+        base.set(applied);
+        changed.set(applied);
+        changed.setFlag(WindowState.LIGHT_STATUS_BAR, false);
+    }
+
+    @Benchmark
+    public int resolveAndDiffUnchanged() {
+        options.resolveInto(null, resolved);
+        return applied.diff(resolved);
+    }
+
+    @Benchmark
+    public int resolveOnBaseAndDiff() {
+        options.resolveInto(base, resolved);
+        return applied.diff(resolved);
+    }
+
+    @Benchmark
+    public int diffChanged() {
+        return applied.diff(changed);
+    }
+}
@@ -0,0 +1,58 @@
+package com.devmob.activityhelper.managers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Listener dispatch of {@code KeyboardManager} on every keyboard visibility change, through
+ * the library's {@link ListenerList}.
+ */
+@State(Scope.Thread)
+public class KeyboardDispatchBenchmark {
+
+    @Param({"1", "4", "16"})
+    public int listenerCount;
+
+    private final ListenerList<KeyboardListener> listeners = new ListenerList<>();
+    private final ListenerList<KeyboardListener> churn = new ListenerList<>();
+    private KeyboardListener extra;
+
+    // Written by the listeners and returned so the dispatch is not optimized away
+    private long sink = 0;
+
+    @Setup
+    public void setup() {
+        for (int i = 0; i < listenerCount; i++) {
+            listeners.add(isOpen -> sink++);
+            churn.add(isOpen -> sink++);
+        }
+        extra = isOpen -> sink--;
+    }
+
+    @Benchmark
+    public long dispatch() {
+        boolean open = (sink & 1) == 0;
+        listeners.forEach(listener -> listener.onKeyboardVisibilityChanged(open));
+        return sink;
+    }
+
+    /**
+     * A listener registered and removed around each dispatch, like a screen shown and closed.
+     */
+    @Benchmark
+    public long addDispatchRemove() {
+        churn.add(extra);
+        boolean open = (sink & 1) == 0;
+        churn.forEach(listener -> listener.onKeyboardVisibilityChanged(open));
+        churn.remove(extra);
+        return sink;
+    }
+
+    // Same shape as KeyboardManager.KeyboardListener, which needs the Android SDK
+    interface KeyboardListener {
+        void onKeyboardVisibilityChanged(boolean isOpen);
+    }
+}
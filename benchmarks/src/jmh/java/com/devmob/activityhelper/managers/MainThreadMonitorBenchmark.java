@@ -0,0 +1,58 @@
+package com.devmob.activityhelper.managers;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Cost {@link MainThreadMonitor} adds around every library task, disabled and enabled,
+ * against the bare task. The gc profiler must report no allocation for any of them.
+ */
+@State(Scope.Thread)
+public class MainThreadMonitorBenchmark {
+
+    // Stand-in for a library task: a few field updates
+    private long sink = 0;
+
+    // Each benchmark runs in its own fork, the monitor is only enabled for this one
+    @State(Scope.Thread)
+    public static class EnabledMonitor {
+        @Setup
+        public void setup() {
+            MainThreadMonitor.enable().setFrameBudget(16);
+        }
+
+        @TearDown
+        public void tearDown() {
+            MainThreadMonitor.disable();
+        }
+    }
+
+    @Benchmark
+    public long bareTask() {
+        return task();
+    }
+
+    @Benchmark
+    public long monitorDisabled() {
+        long start = MainThreadMonitor.begin();
+        long result = task();
+        MainThreadMonitor.end(MainThreadMonitor.OP_COMMIT, start);
+        return result;
+    }
+
+    @Benchmark
+    public long monitorEnabled(EnabledMonitor monitor) {
+        long start = MainThreadMonitor.begin();
+        long result = task();
+        MainThreadMonitor.end(MainThreadMonitor.OP_COMMIT, start);
+        return result;
+    }
+
+    private long task() {
+        sink = sink * 31 + 7;
+        return sink;
+    }
+}
@@ -0,0 +1,52 @@
+package com.devmob.activityhelper.navigator;
+
+import com.devmob.activityhelper.benchmarks.standins.FakeLooper;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * {@link CommitQueue}, the queue behind {@code ActivityNavigator.openFragment} and
+ * {@code FragmentNavigator}: a burst of commits requested in the same frame, then the looper
+ * drained. The number of looper messages is reported next to the time, one per commit.
+ */
+@State(Scope.Thread)
+public class CommitQueueBenchmark {
+
+    @Param({"1", "3", "10"})
+    public int burst;
+
+    private final FakeLooper looper = new FakeLooper();
+    private long commitCount = 0;
+    private final Runnable commit = () -> commitCount++;
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class Counters {
+        public long messages;
+        public long commits;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            messages = 0;
+            commits = 0;
+        }
+    }
+
+    @Benchmark
+    public void commitBurst(Counters counters) {
+        looper.reset();
+        commitCount = 0;
+        CommitQueue queue = new CommitQueue(looper::post);
+
+        for (int i = 0; i < burst; i++) queue.enqueue(commit);
+        looper.drain();
+        counters.messages += looper.getPostedCount();
+        counters.commits += commitCount;
+    }
+}